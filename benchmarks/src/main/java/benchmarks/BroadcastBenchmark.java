@@ -0,0 +1,88 @@
+package benchmarks;
+
+import chess.ChessGame;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import server.websocket.ConnectedClient;
+import server.websocket.ConnectionManager;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ConnectionManager.broadcast fanning a message out to the sessions
+ * watching one game, with the connected clients spread evenly over several
+ * games. Sessions are stand-ins that hand each sent frame to a Blackhole
+ * instead of a socket, so the numbers cover lookup and encoding but not I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    @Param({"16", "256", "1024"})
+    public int clients;
+
+    @Param({"1", "64"})
+    public int games;
+
+    private ConnectionManager connections;
+    private ChessGame game;
+    private ServerMessage loadGame;
+    private ServerMessage notification;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        connections = new ConnectionManager();
+        for (int i = 0; i < clients; i++) {
+            connections.add(new ConnectedClient(session(blackhole), "user" + i, i % games + 1));
+        }
+        game = new ChessGame();
+        loadGame = new LoadGameMessage(game);
+        notification = new NotificationMessage("user0 moved e2 to e4");
+    }
+
+    @Benchmark
+    public void broadcastLoadGame() {
+        connections.broadcast(1, null, loadGame);
+    }
+
+    @Benchmark
+    public void broadcastCachedLoadGame() {
+        connections.broadcastLoadGame(1, game);
+    }
+
+    @Benchmark
+    public void broadcastNotification() {
+        connections.broadcast(1, null, notification);
+    }
+
+    private static Session session(Blackhole blackhole) {
+        var remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("sendString")) {
+                        blackhole.consume(args[0]);
+                        ((WriteCallback) args[1]).writeSuccess();
+                    }
+                    return null;
+                });
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "isOpen" -> true;
+                    case "getRemote" -> remote;
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "BenchmarkSession@" + Integer.toHexString(System.identityHashCode(proxy));
+                    default -> null;
+                });
+    }
+}
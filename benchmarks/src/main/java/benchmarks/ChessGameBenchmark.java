@@ -0,0 +1,81 @@
+package benchmarks;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the ChessGame calls the server makes for every move command:
+ * making the move, listing valid moves, and checking for checkmate
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChessGameBenchmark {
+
+    private static final Map<String, String> POSITIONS = Map.of(
+            "start", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1",
+            "middlegame", "r2q1rk1/pp2bppp/2n1pn2/3p4/3P1B2/2PBPN2/PP1N1PPP/R2Q1RK1 w - - 0 1",
+            "checkmate", "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w - - 0 1");
+
+    /**
+     * Knight moves out and back for both sides, so playing them in order
+     * returns the game to where it started
+     */
+    private static final ChessMove[] KNIGHT_SHUFFLE = {
+            new ChessMove(ChessPosition.of(1, 7), ChessPosition.of(3, 6), null),
+            new ChessMove(ChessPosition.of(8, 7), ChessPosition.of(6, 6), null),
+            new ChessMove(ChessPosition.of(3, 6), ChessPosition.of(1, 7), null),
+            new ChessMove(ChessPosition.of(6, 6), ChessPosition.of(8, 7), null),
+    };
+
+    @Param({"start", "middlegame", "checkmate"})
+    public String position;
+
+    private ChessGame game;
+    private ChessGame shuffleGame;
+    private List<ChessPosition> ownPieces;
+
+    @Setup
+    public void setup() {
+        game = Perft.fromFen(POSITIONS.get(position));
+        shuffleGame = new ChessGame();
+        ownPieces = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                var piece = game.getBoard().getPiece(ChessPosition.of(row, col));
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    ownPieces.add(ChessPosition.of(row, col));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void makeMove() throws InvalidMoveException {
+        for (ChessMove move : KNIGHT_SHUFFLE) {
+            shuffleGame.makeMove(move);
+        }
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for (ChessPosition pos : ownPieces) {
+            blackhole.consume(game.validMoves(pos));
+        }
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+}
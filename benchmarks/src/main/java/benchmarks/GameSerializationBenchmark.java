@@ -0,0 +1,85 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.GameCodec;
+import chess.Perft;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+import utilities.Serializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures turning a ChessGame into what is stored in the games table and
+ * back: as JSON through a new reflective Gson, as JSON through the shared
+ * Serializer's streaming adapters, and with the GameCodec that
+ * MySqlDataAccess uses
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameSerializationBenchmark {
+
+    private ChessGame game;
+    private String gameJson;
+    private byte[] gameState;
+
+    @Setup
+    public void setup() {
+        game = Perft.fromFen("r2q1rk1/pp2bppp/2n1pn2/3p4/3P1B2/2PBPN2/PP1N1PPP/R2Q1RK1 w - - 0 1");
+        gameJson = new Gson().toJson(game);
+        gameState = GameCodec.encode(game);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return new Gson().toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame fromJson() {
+        return new Gson().fromJson(gameJson, ChessGame.class);
+    }
+
+    /**
+     * Reads a game back and makes the first rules query on it, which also
+     * pays for rebuilding the board state that is not serialized
+     */
+    @Benchmark
+    public ChessGame.GameStatus fromJsonAndEvaluate() {
+        return new Gson().fromJson(gameJson, ChessGame.class).evaluateStatus();
+    }
+
+    @Benchmark
+    public ChessGame roundTrip() {
+        return new Gson().fromJson(new Gson().toJson(game), ChessGame.class);
+    }
+
+    @Benchmark
+    public String toJsonStreaming() {
+        return Serializer.GSON.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame fromJsonStreaming() {
+        return Serializer.GSON.fromJson(gameJson, ChessGame.class);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return GameCodec.encode(game);
+    }
+
+    @Benchmark
+    public ChessGame decode() {
+        return GameCodec.decode(gameState);
+    }
+
+    @Benchmark
+    public ChessGame.GameStatus decodeAndEvaluate() {
+        return GameCodec.decode(gameState).evaluateStatus();
+    }
+}
@@ -0,0 +1,74 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.Perft;
+import dataaccess.DataAccessException;
+import dataaccess.MySqlDataAccess;
+import datamodel.GameData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures saving and loading a game through MySqlDataAccess, including
+ * the connection, the query and encoding the game. Needs the database
+ * configured in the server's db.properties; the benchmark games are left in
+ * the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameStoreBenchmark {
+
+    private MySqlDataAccess dataAccess;
+    private ChessGame game;
+    private int gameID;
+    private ChessGame movingGame;
+    private int movingGameID;
+
+    @Setup
+    public void setup() throws DataAccessException {
+        dataAccess = new MySqlDataAccess();
+        game = Perft.fromFen("r2q1rk1/pp2bppp/2n1pn2/3p4/3P1B2/2PBPN2/PP1N1PPP/R2Q1RK1 w - - 0 1");
+        gameID = dataAccess.createGame("benchmark");
+        dataAccess.updateGame(gameID, game);
+        movingGame = new ChessGame();
+        movingGameID = dataAccess.createGame("benchmark moves");
+    }
+
+    @Benchmark
+    public void updateGame() throws DataAccessException {
+        dataAccess.updateGame(gameID, game);
+    }
+
+    @Benchmark
+    public GameData getGame() throws DataAccessException {
+        return dataAccess.getGame(gameID);
+    }
+
+    /**
+     * Makes the next move of a knight shuffle and logs it, as a move command
+     * does
+     */
+    @Benchmark
+    public void appendMove() throws DataAccessException, InvalidMoveException {
+        var move = nextShuffleMove(movingGame.getPly());
+        movingGame.makeMove(move);
+        dataAccess.appendMove(movingGameID, move, movingGame);
+    }
+
+    private static ChessMove nextShuffleMove(int ply) {
+        return switch (ply % 4) {
+            case 0 -> new ChessMove(ChessPosition.of(1, 7), ChessPosition.of(3, 6), null);
+            case 1 -> new ChessMove(ChessPosition.of(8, 7), ChessPosition.of(6, 6), null);
+            case 2 -> new ChessMove(ChessPosition.of(3, 6), ChessPosition.of(1, 7), null);
+            default -> new ChessMove(ChessPosition.of(6, 6), ChessPosition.of(8, 7), null);
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package benchmarks;
+
+import dataaccess.MemoryDataAccess;
+import datamodel.AuthData;
+import datamodel.UserData;
+import org.openjdk.jmh.annotations.*;
+import service.UserService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures UserService.login, which is dominated by checking the password
+ * against its BCrypt hash. Users are kept in memory so the database does not
+ * show up in the numbers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginBenchmark {
+
+    private UserService userService;
+    private UserData login;
+
+    @Setup
+    public void setup() throws Exception {
+        userService = new UserService(new MemoryDataAccess());
+        userService.register(new UserData("player", "password", "player@mail.com"));
+        login = new UserData("player", "password", null);
+    }
+
+    @Benchmark
+    public AuthData login() throws Exception {
+        return userService.login(login);
+    }
+}
@@ -0,0 +1,93 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Perft;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+import utilities.Serializer;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.ServerMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the websocket JSON the server and client handle on every move.
+ * The reflection cases are the old path: a new Gson per call, and a second
+ * parse once the type is known. The streaming cases use the shared
+ * Serializer, which reads the right subclass in one pass.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageSerializationBenchmark {
+
+    private MakeMoveCommand command;
+    private String commandJson;
+    private LoadGameMessage loadGame;
+    private String loadGameJson;
+
+    @Setup
+    public void setup() {
+        var move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        command = new MakeMoveCommand("0b5e5a8c-6b52-4f0a-9d6e-2f4c1d2b7a90", 42, move);
+        commandJson = new Gson().toJson(command);
+        ChessGame game = Perft.fromFen("r2q1rk1/pp2bppp/2n1pn2/3p4/3P1B2/2PBPN2/PP1N1PPP/R2Q1RK1 w - - 0 1");
+        loadGame = new LoadGameMessage(game);
+        loadGameJson = new Gson().toJson(loadGame);
+    }
+
+    @Benchmark
+    public UserGameCommand readCommandReflection() {
+        UserGameCommand read = new Gson().fromJson(commandJson, UserGameCommand.class);
+        if (read.getCommandType() == UserGameCommand.CommandType.MAKE_MOVE) {
+            read = new Gson().fromJson(commandJson, MakeMoveCommand.class);
+        }
+        return read;
+    }
+
+    @Benchmark
+    public UserGameCommand readCommandStreaming() {
+        return Serializer.GSON.fromJson(commandJson, UserGameCommand.class);
+    }
+
+    @Benchmark
+    public String writeCommandReflection() {
+        return new Gson().toJson(command);
+    }
+
+    @Benchmark
+    public String writeCommandStreaming() {
+        return Serializer.GSON.toJson(command);
+    }
+
+    @Benchmark
+    public ServerMessage readLoadGameReflection() {
+        ServerMessage read = new Gson().fromJson(loadGameJson, ServerMessage.class);
+        if (read.getServerMessageType() == ServerMessage.ServerMessageType.LOAD_GAME) {
+            read = new Gson().fromJson(loadGameJson, LoadGameMessage.class);
+        }
+        return read;
+    }
+
+    @Benchmark
+    public ServerMessage readLoadGameStreaming() {
+        return Serializer.GSON.fromJson(loadGameJson, ServerMessage.class);
+    }
+
+    @Benchmark
+    public String writeLoadGameReflection() {
+        return new Gson().toJson(loadGame);
+    }
+
+    @Benchmark
+    public String writeLoadGameStreaming() {
+        return Serializer.GSON.toJson(loadGame);
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.Perft;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast the rules engine walks the legal move tree. Alongside
+ * the usual calls per second, JMH reports the "nodes" counter, which is the
+ * engine's speed in leaf positions per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerftBenchmark {
+
+    private static final Map<String, String> POSITIONS = Map.of(
+            "start", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1",
+            "endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "promotions", "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1");
+
+    @Param({"start", "endgame", "promotions"})
+    public String position;
+
+    @Param({"4"})
+    public int depth;
+
+    private ChessGame game;
+
+    /**
+     * Leaf nodes visited, reported by JMH as a rate
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        game = Perft.fromFen(POSITIONS.get(position));
+    }
+
+    @Benchmark
+    public long perft(Nodes counter) {
+        long nodes = Perft.perft(game, depth);
+        counter.nodes += nodes;
+        return nodes;
+    }
+}
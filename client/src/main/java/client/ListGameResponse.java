@@ -3,5 +3,9 @@ package client;
 import datamodel.GameResult;
 import java.util.ArrayList;
 
-public record ListGameResponse(ArrayList<GameResult> games) {
+/**
+ * @param next the gameID to list after for the next page, or null if this is
+ *             the last page
+ */
+public record ListGameResponse(ArrayList<GameResult> games, Integer next) {
 }
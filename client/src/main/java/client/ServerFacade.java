@@ -1,8 +1,7 @@
 package client;
 import datamodel.*;
 import exception.ServerException;
-
-import com.google.gson.Gson;
+import utilities.Serializer;
 
 import java.net.*;
 import java.net.http.*;
@@ -13,6 +12,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 public class ServerFacade {
+    /**
+     * The most games the server returns in one page
+     */
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final HttpClient client = HttpClient.newHttpClient();
     private final String serverURL;
 
@@ -53,12 +57,45 @@ public class ServerFacade {
         return result.gameID();
     }
 
+    /**
+     * Lists every game, following next until the server has no more
+     */
     public ArrayList<GameResult> listGames(String token) throws Exception {
-        var request = buildRequest("GET", "/game", null, token);
+        var games = new ArrayList<GameResult>();
+        Integer after = null;
+        do {
+            var page = listGames(token, GameFilter.ALL, after, MAX_PAGE_SIZE);
+            assert page != null;
+            games.addAll(page.games());
+            after = page.next();
+        } while (after != null);
+        return games;
+    }
+
+    /**
+     * Lists one page of games
+     *
+     * @param after the next value from the previous page, or null for the
+     *              first page
+     * @param limit the most games to return
+     */
+    public ListGameResponse listGames(String token, GameFilter filter, Integer after, int limit) throws Exception {
+        var query = new StringBuilder("/game?limit=").append(limit);
+        if (after != null) {
+            query.append("&after=").append(after);
+        }
+        if (filter.openSeats()) {
+            query.append("&open=true");
+        }
+        if (filter.mine()) {
+            query.append("&mine=true");
+        }
+        if (filter.inProgress()) {
+            query.append("&inProgress=true");
+        }
+        var request = buildRequest("GET", query.toString(), null, token);
         var response = sendRequest(request);
-        ListGameResponse result = handleResponse(response, ListGameResponse.class);
-        assert result != null;
-        return result.games();
+        return handleResponse(response, ListGameResponse.class);
     }
 
     public void joinGame(String color, int id, String token) throws Exception {
@@ -83,7 +120,7 @@ public class ServerFacade {
 
     private BodyPublisher makeRequestBody(Object body) {
         if (body != null) {
-            return BodyPublishers.ofString(new Gson().toJson(body));
+            return BodyPublishers.ofString(Serializer.GSON.toJson(body));
         }
         else {
             return BodyPublishers.noBody();
@@ -103,13 +140,13 @@ public class ServerFacade {
         if (status != 200) {
             var body = response.body();
             if (body != null) {
-                var map = new Gson().fromJson(body, HashMap.class);
+                var map = Serializer.GSON.fromJson(body, HashMap.class);
                 String message = map.get("message").toString();
                 throw new ServerException(message, status);
             }
         }
         if (responseClass != null) {
-            return new Gson().fromJson(response.body(), responseClass);
+            return Serializer.GSON.fromJson(response.body(), responseClass);
         }
         return null;
     }
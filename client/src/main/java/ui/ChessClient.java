@@ -2,11 +2,14 @@ package ui;
 
 import chess.*;
 import client.ServerFacade;
+import datamodel.GameFilter;
 import datamodel.GameResult;
 import datamodel.UserData;
 import websocket.ServerMessageHandler;
 import websocket.WebSocketFacade;
+import websocket.messages.MoveMessage;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.Scanner;
@@ -25,11 +28,16 @@ public class ChessClient {
     private boolean confirmed;
     private boolean promoting;
     public boolean observer;
+    private final ArrayList<GameResult> listed = new ArrayList<>();
+    private GameFilter listFilter = GameFilter.ALL;
+    private Integer nextPage;
+
+    private static final int PAGE_SIZE = 20;
 
     public ChessClient(String serverURL) throws Exception {
         ServerMessageHandler messageHandler = new ServerMessageHandler(this);
         server = new ServerFacade(serverURL);
-        ws = new WebSocketFacade(serverURL, messageHandler);
+        ws = new WebSocketFacade(serverURL, messageHandler, true);
     }
 
     public enum State {
@@ -99,7 +107,7 @@ public class ChessClient {
                 case "register" -> register(params);
                 case "login" -> login(params);
                 case "create" -> create(params);
-                case "list" -> list();
+                case "list" -> list(params);
                 case "join" -> join(params);
                 case "observe" -> observe(params);
                 case "logout" -> logout();
@@ -149,6 +157,7 @@ public class ChessClient {
         assertLoggedIn();
         if (params.length == 1) {
             var id = server.createGame(params[0], authToken);
+            listed.clear();
             return String.format("Game created: \"%s\"; id: %d", params[0], id);
         }
         else {
@@ -156,22 +165,70 @@ public class ChessClient {
         }
     }
 
-    private String list() throws Exception {
+    /**
+     * Lists the first page of games, or with "more" the next page. Games are
+     * numbered across pages, and join and observe use those numbers.
+     */
+    private String list(String... params) throws Exception {
         assertLoggedIn();
+        var option = (params.length > 0) ? params[0] : "";
         var result = new StringBuilder();
-        result.append("List of all of the games -\n\n");
-        var games = server.listGames(authToken);
-        int count = 0;
-        for (GameResult game : games) {
+        if (option.equals("more") && nextPage == null) {
+            return "No more games";
+        }
+        if (!option.equals("more")) {
+            var filter = switch (option) {
+                case "open" -> new GameFilter(true, false, false);
+                case "mine" -> new GameFilter(false, true, false);
+                case "playing" -> new GameFilter(false, false, true);
+                case "" -> GameFilter.ALL;
+                default -> null;
+            };
+            if (filter == null) {
+                return "Expected [open|mine|playing|more]";
+            }
+            listFilter = filter;
+            listed.clear();
+            nextPage = null;
+            result.append("List of games -\n\n");
+        }
+        int count = listed.size();
+        fetchPage();
+        for (GameResult game : listed.subList(count, listed.size())) {
             count++;
             var name = game.gameName();
             var white = game.whiteUsername();
             var black = game.blackUsername();
             result.append(String.format("Game %d: \"%s\" - [White: %s, Black: %s]\n", count, name, white, black));
         }
+        if (nextPage != null) {
+            result.append("Type list more to see more games\n");
+        }
         return result.toString();
     }
 
+    /**
+     * Adds the next page of games to the listed ones
+     */
+    private void fetchPage() throws Exception {
+        var page = server.listGames(authToken, listFilter, nextPage, PAGE_SIZE);
+        listed.addAll(page.games());
+        nextPage = page.next();
+    }
+
+    /**
+     * @return the listed games, listing the first page if nothing has been
+     * listed yet
+     */
+    private ArrayList<GameResult> listedGames() throws Exception {
+        if (listed.isEmpty()) {
+            listFilter = GameFilter.ALL;
+            nextPage = null;
+            fetchPage();
+        }
+        return listed;
+    }
+
     private String join(String... params) throws Exception {
         assertLoggedIn();
         if (params.length == 2) {
@@ -183,7 +240,7 @@ public class ChessClient {
             }
             String color = params[1];
             color = color.toUpperCase();
-            var list = server.listGames(authToken);
+            var list = listedGames();
             if (id > list.size() || id < 1) {
                 return "Game does not exist";
             }
@@ -214,7 +271,7 @@ public class ChessClient {
             } catch (NumberFormatException ex) {
                 return "Expected a number for <ID>";
             }
-            var list = server.listGames(authToken);
+            var list = listedGames();
             if (id > list.size() || id < 1) {
                 return "Game does not exist";
             }
@@ -233,6 +290,7 @@ public class ChessClient {
     private String logout() throws Exception {
         assertLoggedIn();
         server.logout(authToken);
+        listed.clear();
         state = State.LOGGEDOUT;
         return "Logged out";
     }
@@ -330,7 +388,7 @@ public class ChessClient {
         else if (state == State.LOGGEDIN) {
             return """
                    \u001b[35mcreate \u001B[36m<NAME>\u001B[0m - creates a game
-                   \u001b[35mlist\u001B[0m - lists all games
+                   \u001b[35mlist \u001B[0m[open|mine|playing|more] - lists games
                    \u001b[35mjoin \u001B[36m<ID> \u001B[0m[WHITE|\u001B[37mBLACK\u001B[0m] - joins a game as a color
                    \u001b[35mobserve \u001B[36m<ID>\u001B[0m - join game as an observer
                    \u001b[35mlogout\u001B[0m - logout of server
@@ -394,6 +452,44 @@ public class ChessClient {
         gameObject = game;
     }
 
+    public ChessGame getGame() {
+        return gameObject;
+    }
+
+    /**
+     * Makes a move the server reported on the local copy of the game
+     *
+     * @return false if the local game does not end up matching the server's,
+     * in which case it has to be loaded again
+     */
+    public boolean applyMove(MoveMessage update) {
+        if (gameObject == null) {
+            return false;
+        }
+        try {
+            gameObject.makeMove(update.move);
+        } catch (InvalidMoveException ex) {
+            return false;
+        }
+        if (update.status != null) {
+            gameObject.setGameStatus(update.status);
+        }
+        return GameCodec.hash(gameObject) == update.stateHash;
+    }
+
+    /**
+     * Asks the server for the whole game after the local copy fell out of step
+     */
+    public void reloadGame() {
+        try {
+            ws.reload(authToken, gameID);
+        } catch (Exception ex) {
+            System.out.println();
+            System.out.println("Could not reload the game: " + ex.getMessage());
+            printPrompt();
+        }
+    }
+
     public void setBoard(ChessBoard board) {
         this.board = board;
     }
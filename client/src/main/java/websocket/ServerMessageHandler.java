@@ -1,10 +1,12 @@
 package websocket;
 
+import chess.ChessBoard;
 import chess.ChessGame;
 import ui.ChessClient;
 import ui.DrawBoard;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
 import websocket.messages.NotificationMessage;
 import websocket.messages.ServerMessage;
 
@@ -20,18 +22,16 @@ public class ServerMessageHandler {
             case LOAD_GAME -> {
                 var load = (LoadGameMessage) message;
                 client.setGame(load.game);
-                var board = load.game.getBoard();
-                client.setBoard(board);
-                var color = client.getColor();
-                if (color == ChessGame.TeamColor.WHITE || client.observer) {
-                    System.out.println();
-                    DrawBoard.printBoardWhite(board);
+                printBoard(load.game.getBoard());
+            }
+            case MOVE -> {
+                var update = (MoveMessage) message;
+                if (client.applyMove(update)) {
+                    printBoard(client.getGame().getBoard());
                 }
-                else if (color == ChessGame.TeamColor.BLACK) {
-                    System.out.println();
-                    DrawBoard.printBoardBlack(board);
+                else {
+                    client.reloadGame();
                 }
-                client.printPrompt();
             }
             case NOTIFICATION -> {
                 var note = (NotificationMessage) message;
@@ -47,4 +47,18 @@ public class ServerMessageHandler {
             }
         }
     }
+
+    private void printBoard(ChessBoard board) {
+        client.setBoard(board);
+        var color = client.getColor();
+        if (color == ChessGame.TeamColor.WHITE || client.observer) {
+            System.out.println();
+            DrawBoard.printBoardWhite(board);
+        }
+        else if (color == ChessGame.TeamColor.BLACK) {
+            System.out.println();
+            DrawBoard.printBoardBlack(board);
+        }
+        client.printPrompt();
+    }
 }
@@ -1,47 +1,62 @@
 package websocket;
 
 import chess.ChessMove;
-import com.google.gson.Gson;
 import exception.ServerException;
 import jakarta.websocket.*;
+import utilities.BinaryProtocol;
+import utilities.Serializer;
+import websocket.commands.ConnectCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
-import websocket.messages.ErrorMessage;
-import websocket.messages.LoadGameMessage;
-import websocket.messages.NotificationMessage;
 import websocket.messages.ServerMessage;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 public class WebSocketFacade extends Endpoint {
 
     Session session;
     ServerMessageHandler messageHandler;
+    private final boolean binary;
 
     public WebSocketFacade(String url, ServerMessageHandler messageHandler) throws Exception {
+        this(url, messageHandler, false);
+    }
+
+    /**
+     * @param binary whether to offer the binary subprotocol; JSON is still
+     *               used if the server does not accept it
+     */
+    public WebSocketFacade(String url, ServerMessageHandler messageHandler, boolean binary) throws Exception {
         try {
             url = url.replace("http", "ws");
             URI socketURI = new URI(url + "/ws");
             this.messageHandler = messageHandler;
 
             WebSocketContainer container = ContainerProvider.getWebSocketContainer();
-            this.session = container.connectToServer(this, socketURI);
+            var config = ClientEndpointConfig.Builder.create()
+                    .preferredSubprotocols(binary ? List.of(BinaryProtocol.SUBPROTOCOL) : List.of())
+                    .build();
+            this.session = container.connectToServer(this, config, socketURI);
+            this.binary = BinaryProtocol.SUBPROTOCOL.equals(session.getNegotiatedSubprotocol());
 
-            //set message handler
+            //set message handlers
             this.session.addMessageHandler(new MessageHandler.Whole<String>() {
                 @Override
                 public void onMessage(String message) {
-                    ServerMessage notification = new Gson().fromJson(message, ServerMessage.class);
-                    switch (notification.getServerMessageType()) {
-                        case LOAD_GAME -> notification = new Gson().fromJson(message, LoadGameMessage.class);
-                        case NOTIFICATION -> notification = new Gson().fromJson(message, NotificationMessage.class);
-                        case ERROR -> notification = new Gson().fromJson(message, ErrorMessage.class);
-                    }
+                    ServerMessage notification = Serializer.GSON.fromJson(message, ServerMessage.class);
                     messageHandler.handle(notification);
                 }
             });
+            this.session.addMessageHandler(new MessageHandler.Whole<ByteBuffer>() {
+                @Override
+                public void onMessage(ByteBuffer message) {
+                    messageHandler.handle(BinaryProtocol.decodeMessage(message));
+                }
+            });
         } catch (URISyntaxException ex) {
             throw new ServerException("Error", 500);
         }
@@ -57,11 +72,18 @@ public class WebSocketFacade extends Endpoint {
         System.out.println(thr.getMessage());
     }
 
+    /**
+     * @return whether commands and messages are going over the binary
+     * subprotocol
+     */
+    public boolean isBinary() {
+        return binary;
+    }
 
     public void connect(String token, int gameID) throws Exception {
         try {
-            var command = new UserGameCommand(UserGameCommand.CommandType.CONNECT, token, gameID);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            var command = new ConnectCommand(token, gameID, true);
+            send(command);
         } catch (IOException ex) {
             throw new Exception(ex.getMessage());
         }
@@ -70,7 +92,7 @@ public class WebSocketFacade extends Endpoint {
     public void move(String token, int gameID, ChessMove move) throws Exception {
         try {
             var command = new MakeMoveCommand(token, gameID, move);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            send(command);
         } catch (IOException ex) {
             throw new Exception(ex.getMessage());
         }
@@ -79,7 +101,7 @@ public class WebSocketFacade extends Endpoint {
     public void leave(String token, int gameID) throws Exception {
         try {
             var command = new UserGameCommand(UserGameCommand.CommandType.LEAVE, token, gameID);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            send(command);
         } catch (IOException ex) {
             throw new Exception(ex.getMessage());
         }
@@ -88,9 +110,30 @@ public class WebSocketFacade extends Endpoint {
     public void resign(String token, int gameID) throws Exception {
         try {
             var command = new UserGameCommand(UserGameCommand.CommandType.RESIGN, token, gameID);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            send(command);
+        } catch (IOException ex) {
+            throw new Exception(ex.getMessage());
+        }
+    }
+
+    /**
+     * Asks the server to send the whole game again
+     */
+    public void reload(String token, int gameID) throws Exception {
+        try {
+            var command = new UserGameCommand(UserGameCommand.CommandType.RELOAD, token, gameID);
+            send(command);
         } catch (IOException ex) {
             throw new Exception(ex.getMessage());
         }
     }
+
+    private void send(UserGameCommand command) throws IOException {
+        if (binary) {
+            this.session.getBasicRemote().sendBinary(ByteBuffer.wrap(BinaryProtocol.encode(command)));
+        }
+        else {
+            this.session.getBasicRemote().sendText(Serializer.GSON.toJson(command));
+        }
+    }
 }
@@ -1,9 +1,17 @@
 package client;
 
+import datamodel.GameFilter;
 import datamodel.UserData;
 import exception.ServerException;
 import org.junit.jupiter.api.*;
 import server.Server;
+import utilities.Serializer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -110,6 +118,53 @@ public class ServerFacadeTests {
         assertEquals(1, games.size());
     }
 
+    @Test
+    public void listGamesFollowsNext() throws Exception {
+        var token = facade.register(user).authToken();
+        for (int i = 0; i < 105; i++) {
+            facade.createGame("test" + i, token);
+        }
+        assertNotNull(facade.listGames(token, GameFilter.ALL, null, 100).next());
+        assertEquals(105, facade.listGames(token).size());
+    }
+
+    @Test
+    public void unpagedListIsComplete() throws Exception {
+        var token = facade.register(user).authToken();
+        for (int i = 0; i < 105; i++) {
+            facade.createGame("test" + i, token);
+        }
+        var request = HttpRequest.newBuilder(URI.create(serverURL + "/game"))
+                .header("Authorization", token)
+                .GET()
+                .build();
+        var response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        var list = Serializer.GSON.fromJson(response.body(), ListGameResponse.class);
+        assertEquals(105, list.games().size());
+        assertNull(list.next());
+    }
+
+    @Test
+    public void listGamesPaged() throws Exception {
+        var token = facade.register(user).authToken();
+        for (int i = 0; i < 3; i++) {
+            facade.createGame("test" + i, token);
+        }
+        var first = facade.listGames(token, GameFilter.ALL, null, 2);
+        assertEquals(2, first.games().size());
+        assertNotNull(first.next());
+        var rest = facade.listGames(token, GameFilter.ALL, first.next(), 2);
+        assertEquals(1, rest.games().size());
+        assertNull(rest.next());
+
+        var gameID = rest.games().getFirst().gameID();
+        facade.joinGame("WHITE", gameID, token);
+        var mine = facade.listGames(token, new GameFilter(false, true, false), null, 10);
+        assertEquals(1, mine.games().size());
+        assertEquals(gameID, mine.games().getFirst().gameID());
+    }
+
     @Test
     public void listGamesUnauthorized() throws Exception {
         facade.register(user);
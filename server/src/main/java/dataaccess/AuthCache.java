@@ -0,0 +1,122 @@
+package dataaccess;
+
+import datamodel.AuthData;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, least-recently-used cache of auth token lookups. Tokens that
+ * were found are kept for the TTL, and tokens that were not found are
+ * remembered for the shorter negative TTL, so repeated bad tokens do not
+ * reach the database either.
+ * <p>
+ * A lookup that was already running when a token was invalidated does not
+ * put its result in the cache, so a logged out token cannot come back.
+ */
+public class AuthCache {
+
+    /**
+     * Looks a token up in the backing store
+     */
+    @FunctionalInterface
+    public interface Loader {
+        AuthData load(String authToken) throws DataAccessException;
+    }
+
+    /**
+     * @param hits lookups answered with a cached token
+     * @param negativeHits lookups answered with a cached "no such token"
+     * @param misses lookups that went to the backing store
+     * @param size tokens currently cached
+     */
+    public record Stats(long hits, long negativeHits, long misses, int size) {
+        public double hitRate() {
+            long total = hits + negativeHits + misses;
+            return (total == 0) ? 0 : (hits + negativeHits) / (double) total;
+        }
+    }
+
+    private record Entry(AuthData auth, long expiresAt) {
+    }
+
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final Map<String, Entry> entries;
+    private long invalidations;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxSize the most tokens kept at once
+     * @param ttl how long a found token is trusted
+     * @param negativeTtl how long a missing token is remembered as missing
+     */
+    public AuthCache(int maxSize, Duration ttl, Duration negativeTtl) {
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Gets a token from the cache, or from the loader if it is not cached or
+     * has expired
+     *
+     * @return the token's auth data, or null if there is no such token
+     */
+    public AuthData get(String authToken, Loader loader) throws DataAccessException {
+        long stamp;
+        synchronized (this) {
+            var entry = entries.get(authToken);
+            if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+                if (entry.auth() == null) {
+                    negativeHits.increment();
+                }
+                else {
+                    hits.increment();
+                }
+                return entry.auth();
+            }
+            stamp = invalidations;
+        }
+        misses.increment();
+        var auth = loader.load(authToken);
+        synchronized (this) {
+            if (invalidations == stamp) {
+                long ttl = (auth == null) ? negativeTtlNanos : ttlNanos;
+                entries.put(authToken, new Entry(auth, System.nanoTime() + ttl));
+            }
+        }
+        return auth;
+    }
+
+    /**
+     * Caches a token that was just created
+     */
+    public synchronized void put(AuthData auth) {
+        entries.put(auth.authToken(), new Entry(auth, System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized void invalidate(String authToken) {
+        entries.remove(authToken);
+        invalidations++;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        invalidations++;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.sum(), negativeHits.sum(), misses.sum(), entries.size());
+    }
+}
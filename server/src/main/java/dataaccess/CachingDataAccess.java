@@ -0,0 +1,514 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.GameCodec;
+import datamodel.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps games in memory in front of another DataAccess, which stays the
+ * durable store. How games are written depends on whether other servers
+ * write the same store; see {@link Mode}.
+ * <p>
+ * Auth token lookups are answered from an {@link AuthCache}, and tokens are
+ * dropped from it when they are deleted. Users and seats pass straight
+ * through to the store. Games that have not been used for a while and have
+ * nothing left to write are dropped from memory.
+ */
+public final class CachingDataAccess implements DataAccess, AutoCloseable {
+
+    /**
+     * Whether this server is the only one writing the store
+     */
+    public enum Mode {
+        /**
+         * Moves and game updates change the cached game straight away and are
+         * written to the store in the background, in batches, no later than
+         * the flush delay after they happen. When a game ends it is written
+         * before the call returns. The cache numbers versions itself and
+         * checks versioned writes in memory. Each flush raises the store's
+         * version to at least the cached one, so a game loaded again never
+         * goes back to a version already handed out.
+         */
+        ONLY_WRITER,
+
+        /**
+         * Other servers write the same store. Every write goes straight to
+         * the store, which checks versioned writes, and the cached game takes
+         * the version the store gave it. A cached game is only used after
+         * reading its version from the store, and is loaded again if another
+         * server has changed it; seats are always read from the store. This
+         * costs a trip to the store on every read and write, which
+         * ONLY_WRITER saves.
+         */
+        SHARED
+    }
+
+    private static final long IDLE_NANOS = Duration.ofMinutes(10).toNanos();
+
+    /**
+     * Changes to one game that have not reached the store yet
+     *
+     * @param moves moves to log, oldest first
+     * @param game a copy of the game after the latest change
+     * @param version the cached version after the latest change
+     */
+    private record PendingWrite(List<ChessMove> moves, ChessGame game, long version) {
+        PendingWrite then(PendingWrite later) {
+            var allMoves = new ArrayList<>(moves);
+            allMoves.addAll(later.moves);
+            return new PendingWrite(allMoves, later.game, Math.max(version, later.version));
+        }
+    }
+
+    /**
+     * A cached game, and its version
+     */
+    private record CachedGame(GameData data, long version) {
+        CachedGame with(ChessGame game, long nextVersion) {
+            var next = (data.game() == game) ? data
+                    : new GameData(data.gameID(), data.whiteUsername(), data.blackUsername(), data.gameName(), game);
+            return new CachedGame(next, nextVersion);
+        }
+
+        CachedGame withPlayer(ChessGame.TeamColor color, String username) {
+            var next = (color == ChessGame.TeamColor.WHITE)
+                    ? new GameData(data.gameID(), username, data.blackUsername(), data.gameName(), data.game())
+                    : new GameData(data.gameID(), data.whiteUsername(), username, data.gameName(), data.game());
+            return new CachedGame(next, version + 1);
+        }
+    }
+
+    private final DataAccess store;
+    private final Mode mode;
+    private final AuthCache auths = new AuthCache(10_000, Duration.ofMinutes(5), Duration.ofSeconds(10));
+    private final ConcurrentHashMap<Integer, CachedGame> games = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Long> lastUsed = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, PendingWrite> pending = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Caches a store that only this server writes
+     */
+    public CachingDataAccess(DataAccess store, Duration flushDelay) {
+        this(store, flushDelay, Mode.ONLY_WRITER);
+    }
+
+    /**
+     * @param store where games are kept for good
+     * @param flushDelay how long a change can wait in memory before it is
+     *                   written to the store
+     * @param mode whether other servers write the store too
+     */
+    public CachingDataAccess(DataAccess store, Duration flushDelay, Mode mode) {
+        this.store = store;
+        this.mode = mode;
+        flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            var thread = new Thread(task, "game-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long delay = flushDelay.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushInBackground, delay, delay, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        synchronized (flushLock) {
+            pending.clear();
+            games.clear();
+            lastUsed.clear();
+            auths.clear();
+            store.clear();
+        }
+    }
+
+    @Override
+    public void createUser(UserData user) throws DataAccessException {
+        store.createUser(user);
+    }
+
+    @Override
+    public UserData getUser(String username) throws DataAccessException {
+        return store.getUser(username);
+    }
+
+    @Override
+    public void createAuth(AuthData auth) throws DataAccessException {
+        store.createAuth(auth);
+        auths.put(auth);
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        return auths.get(authToken, store::getAuth);
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        store.deleteAuth(authToken);
+        auths.invalidate(authToken);
+    }
+
+    @Override
+    public int createGame(String name) throws DataAccessException {
+        return store.createGame(name);
+    }
+
+    /**
+     * Returns the cached game, loading it from the store the first time. The
+     * same GameData is handed to every caller until the game changes or is
+     * dropped from memory, so changes made to its ChessGame are seen by all
+     * of them.
+     */
+    @Override
+    public GameData getGame(Integer gameID) throws DataAccessException {
+        var cached = load(gameID);
+        return (cached == null) ? null : cached.data();
+    }
+
+    /**
+     * Returns a copy of the cached game, so the caller can change it without
+     * anyone else seeing until it is written back
+     */
+    @Override
+    public VersionedGame getVersionedGame(int gameID) throws DataAccessException {
+        var cached = load(gameID);
+        if (cached == null) {
+            return null;
+        }
+        var data = cached.data();
+        var copy = new GameData(data.gameID(), data.whiteUsername(), data.blackUsername(), data.gameName(),
+                copyOf(data.game()));
+        return new VersionedGame(copy, cached.version());
+    }
+
+    @Override
+    public Long getGameVersion(int gameID) throws DataAccessException {
+        var cached = games.get(gameID);
+        if (mode == Mode.SHARED || cached == null) {
+            return store.getGameVersion(gameID);
+        }
+        return cached.version();
+    }
+
+    @Override
+    public GameResult getGameInfo(int gameID) throws DataAccessException {
+        var cached = games.get(gameID);
+        if (mode == Mode.SHARED || cached == null) {
+            return store.getGameInfo(gameID);
+        }
+        var data = cached.data();
+        return new GameResult(data.gameID(), data.whiteUsername(), data.blackUsername(), data.gameName());
+    }
+
+    @Override
+    public void updateGame(int gameID, ChessGame game) throws DataAccessException {
+        if (mode == Mode.SHARED) {
+            store.updateGame(gameID, game);
+            games.remove(gameID);
+            return;
+        }
+        queue(gameID, game, List.of(), null);
+    }
+
+    @Override
+    public boolean updateGame(int gameID, ChessGame game, long expectedVersion) throws DataAccessException {
+        if (mode == Mode.SHARED) {
+            return written(gameID, game, expectedVersion, store.updateGame(gameID, game, expectedVersion));
+        }
+        return queue(gameID, game, List.of(), expectedVersion);
+    }
+
+    @Override
+    public void updateGames(Map<Integer, ChessGame> games) throws DataAccessException {
+        if (mode == Mode.SHARED) {
+            store.updateGames(games);
+            this.games.keySet().removeAll(games.keySet());
+            return;
+        }
+        for (var entry : games.entrySet()) {
+            updateGame(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void appendMove(int gameID, ChessMove move, ChessGame game) throws DataAccessException {
+        appendMoves(gameID, List.of(move), game);
+    }
+
+    @Override
+    public void appendMoves(int gameID, List<ChessMove> moves, ChessGame game) throws DataAccessException {
+        if (mode == Mode.SHARED) {
+            store.appendMoves(gameID, moves, game);
+            games.remove(gameID);
+            return;
+        }
+        queue(gameID, game, List.copyOf(moves), null);
+    }
+
+    @Override
+    public boolean appendMove(int gameID, ChessMove move, ChessGame game, long expectedVersion)
+            throws DataAccessException {
+        if (mode == Mode.SHARED) {
+            return written(gameID, game, expectedVersion, store.appendMove(gameID, move, game, expectedVersion));
+        }
+        return queue(gameID, game, List.of(move), expectedVersion);
+    }
+
+    @Override
+    public void writeGame(int gameID, List<ChessMove> moves, ChessGame game, long minVersion)
+            throws DataAccessException {
+        flush(gameID);
+        store.writeGame(gameID, moves, game, minVersion);
+        games.remove(gameID);
+    }
+
+    @Override
+    public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+        flush(gameID);
+        return store.getMoves(gameID);
+    }
+
+    @Override
+    public GameList getGameList() throws DataAccessException {
+        return store.getGameList();
+    }
+
+    @Override
+    public GameList getGameList(GameFilter filter, String username, int afterGameID, int limit)
+            throws DataAccessException {
+        return store.getGameList(filter, username, afterGameID, limit);
+    }
+
+    @Override
+    public String getPlayer(ChessGame.TeamColor color, GameData game) throws DataAccessException {
+        var cached = games.get(game.gameID());
+        if (mode == Mode.SHARED) {
+            var info = store.getGameInfo(game.gameID());
+            if (info == null) {
+                return null;
+            }
+            return (color == ChessGame.TeamColor.WHITE) ? info.whiteUsername() : info.blackUsername();
+        }
+        if (cached == null) {
+            return store.getPlayer(color, game);
+        }
+        var data = cached.data();
+        return (color == ChessGame.TeamColor.WHITE) ? data.whiteUsername() : data.blackUsername();
+    }
+
+    @Override
+    public boolean joinGame(ChessGame.TeamColor color, String username, Integer gameID) throws DataAccessException {
+        if (!store.joinGame(color, username, gameID)) {
+            return false;
+        }
+        setSeat(color, username, gameID);
+        return true;
+    }
+
+    @Override
+    public void leaveGame(ChessGame.TeamColor color, Integer gameID) throws DataAccessException {
+        store.leaveGame(color, gameID);
+        setSeat(color, null, gameID);
+    }
+
+    /**
+     * Writes every pending change to the store
+     *
+     * @throws DataAccessException if any game could not be written; those
+     *                             changes stay pending and are retried
+     */
+    public void flush() throws DataAccessException {
+        DataAccessException failure = null;
+        synchronized (flushLock) {
+            for (Integer gameID : new ArrayList<>(pending.keySet())) {
+                try {
+                    flush(gameID);
+                } catch (DataAccessException ex) {
+                    failure = ex;
+                }
+            }
+            dropIdleGames();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @return how often auth token lookups were answered from memory
+     */
+    public AuthCache.Stats authStats() {
+        return auths.stats();
+    }
+
+    /**
+     * Writes what is left and stops the background flushes
+     */
+    @Override
+    public void close() throws DataAccessException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Loads the game into memory if it is not there already. In SHARED mode
+     * a cached game is checked against the store's version first, and loaded
+     * again if it is out of date.
+     */
+    private CachedGame load(int gameID) throws DataAccessException {
+        var cached = games.get(gameID);
+        if (cached != null && mode == Mode.SHARED
+                && !Objects.equals(store.getGameVersion(gameID), cached.version())) {
+            games.remove(gameID, cached);
+            cached = null;
+        }
+        if (cached == null) {
+            flush(gameID);
+            var loaded = store.getVersionedGame(gameID);
+            if (loaded == null) {
+                return null;
+            }
+            var fresh = new CachedGame(loaded.game(), loaded.version());
+            cached = games.putIfAbsent(gameID, fresh);
+            if (cached == null) {
+                cached = fresh;
+            }
+        }
+        lastUsed.put(gameID, System.nanoTime());
+        return cached;
+    }
+
+    /**
+     * Changes the cached game and records the change to be written. Given an
+     * expected version, the change is only made if the cached game is still
+     * at it; the check, the swap and queueing the write happen together, so
+     * changes reach the store in order. A game that has ended is written
+     * straight away.
+     *
+     * @param expectedVersion the version the game must be at, or null to
+     *                        change it whatever it is at
+     * @return whether the change was made
+     */
+    private boolean queue(int gameID, ChessGame game, List<ChessMove> moves, Long expectedVersion)
+            throws DataAccessException {
+        var copy = copyOf(game);
+        var swapped = new boolean[1];
+        CachedGame result;
+        do {
+            if (load(gameID) == null) {
+                return false;
+            }
+            result = games.computeIfPresent(gameID, (id, cached) -> {
+                if (expectedVersion != null && cached.version() != expectedVersion) {
+                    return cached;
+                }
+                var next = cached.with(game, cached.version() + 1);
+                pending.merge(gameID, new PendingWrite(moves, copy, next.version()), PendingWrite::then);
+                swapped[0] = true;
+                return next;
+            });
+        } while (result == null);
+        var status = copy.getGameStatus();
+        if (swapped[0] && status != ChessGame.GameStatus.PLAYING && status != ChessGame.GameStatus.CHECK) {
+            flush(gameID);
+        }
+        return swapped[0];
+    }
+
+    /**
+     * Brings the cached game up to date after a versioned write to the store,
+     * or drops it if the store refused the write. A cached game that is
+     * already newer than the write is left alone.
+     *
+     * @return whether the store took the write
+     */
+    private boolean written(int gameID, ChessGame game, long expectedVersion, boolean stored) {
+        games.computeIfPresent(gameID, (id, cached) -> {
+            if (cached.version() > expectedVersion) {
+                return cached;
+            }
+            return stored ? cached.with(game, expectedVersion + 1) : null;
+        });
+        lastUsed.put(gameID, System.nanoTime());
+        return stored;
+    }
+
+    private void flush(int gameID) throws DataAccessException {
+        synchronized (flushLock) {
+            var write = pending.remove(gameID);
+            if (write == null) {
+                return;
+            }
+            try {
+                store.writeGame(gameID, write.moves(), write.game(), write.version());
+            } catch (DataAccessException ex) {
+                requeue(gameID, write);
+                throw ex;
+            }
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (DataAccessException ex) {
+            System.err.println("Failed to write games to the database: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Puts back changes that failed to write, ahead of any made since
+     */
+    private void requeue(int gameID, PendingWrite write) {
+        pending.merge(gameID, write, (newer, older) -> older.then(newer));
+    }
+
+    private void dropIdleGames() {
+        long now = System.nanoTime();
+        for (var entry : lastUsed.entrySet()) {
+            int gameID = entry.getKey();
+            if (now - entry.getValue() > IDLE_NANOS && !pending.containsKey(gameID)) {
+                games.remove(gameID);
+                lastUsed.remove(gameID, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Changes a cached seat, or in SHARED mode drops the game, since other
+     * servers may have changed it too
+     */
+    private void setSeat(ChessGame.TeamColor color, String username, int gameID) {
+        if (mode == Mode.SHARED) {
+            games.remove(gameID);
+            return;
+        }
+        games.computeIfPresent(gameID, (id, cached) -> cached.withPlayer(color, username));
+    }
+
+    /**
+     * Copies the game as it is now, so a later change by the caller cannot
+     * race with the background write
+     */
+    private static ChessGame copyOf(ChessGame game) {
+        return GameCodec.decode(GameCodec.encode(game));
+    }
+}
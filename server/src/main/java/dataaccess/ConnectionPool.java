@@ -0,0 +1,270 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of database connections. Closing a connection borrowed from
+ * the pool hands it back instead of closing it, so callers use the same
+ * try-with-resources blocks they would with a plain connection.
+ * <p>
+ * Connections older than the max lifetime are closed rather than reused, and
+ * a connection that has sat idle for a while is checked with
+ * {@link Connection#isValid(int)} before it is handed out again.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a new physical connection for the pool
+     */
+    @FunctionalInterface
+    public interface ConnectionSource {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * A snapshot of the pool's usage
+     *
+     * @param maxSize the most connections that can be open at once
+     * @param active connections currently borrowed
+     * @param idle connections waiting in the pool
+     * @param borrows connections handed out since the pool was made
+     * @param created physical connections opened
+     * @param retired physical connections closed for being too old, broken or
+     *                failing a health check
+     * @param timeouts borrows that gave up waiting for a free connection
+     * @param meanWaitMillis average time a borrow waited for a free connection
+     * @param maxWaitMillis longest time a borrow waited for a free connection
+     */
+    public record Stats(int maxSize, int active, int idle, long borrows, long created, long retired,
+                        long timeouts, double meanWaitMillis, double maxWaitMillis) {
+    }
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final ConnectionSource source;
+    private final int maxSize;
+    private final long maxLifetimeNanos;
+    private final long maxWaitNanos;
+    private final long validateAfterNanos;
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder retired = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanosSeen = new AtomicLong();
+
+    /**
+     * @param source opens physical connections
+     * @param maxSize the most connections open at once
+     * @param maxLifetime how long a physical connection is used before it is
+     *                    replaced
+     * @param maxWait how long a borrow waits for a free connection before
+     *                giving up
+     * @param validateAfter how long a connection can sit idle before it is
+     *                      health checked on its next borrow
+     */
+    public ConnectionPool(ConnectionSource source, int maxSize, Duration maxLifetime, Duration maxWait,
+                          Duration validateAfter) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.source = source;
+        this.maxSize = maxSize;
+        this.maxLifetimeNanos = maxLifetime.toNanos();
+        this.maxWaitNanos = maxWait.toNanos();
+        this.validateAfterNanos = validateAfter.toNanos();
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the max wait if all of them are in
+     * use. Close the connection to hand it back.
+     *
+     * @return a connection that returns to the pool when closed
+     * @throws SQLTimeoutException if no connection came free in time
+     * @throws SQLException if a new connection could not be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", ex);
+        }
+        recordWait(System.nanoTime() - start);
+        if (!acquired) {
+            timeouts.increment();
+            throw new SQLTimeoutException("Timed out waiting for a database connection");
+        }
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(source.open());
+                created.increment();
+            }
+            active.incrementAndGet();
+            borrows.increment();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    public Stats stats() {
+        long waitCount = waits.sum();
+        double meanWait = (waitCount == 0) ? 0 : totalWaitNanos.sum() / (double) waitCount / 1_000_000;
+        return new Stats(maxSize, active.get(), idle.size(), borrows.sum(), created.sum(), retired.sum(),
+                timeouts.sum(), meanWait, maxWaitNanosSeen.get() / 1_000_000.0);
+    }
+
+    /**
+     * Closes the idle connections and stops handing out new ones. Borrowed
+     * connections are closed as they come back.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            retire(pooled);
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isHealthy(pooled)) {
+                return pooled;
+            }
+            retire(pooled);
+        }
+        return null;
+    }
+
+    private boolean isHealthy(PooledConnection pooled) {
+        long now = System.nanoTime();
+        if (now - pooled.createdAt > maxLifetimeNanos) {
+            return false;
+        }
+        if (now - pooled.lastUsed < validateAfterNanos) {
+            return true;
+        }
+        try {
+            return pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        active.decrementAndGet();
+        pooled.lastUsed = System.nanoTime();
+        try {
+            if (closed || pooled.connection.isClosed() || pooled.lastUsed - pooled.createdAt > maxLifetimeNanos) {
+                retire(pooled);
+            }
+            else {
+                if (!pooled.connection.getAutoCommit()) {
+                    pooled.connection.rollback();
+                    pooled.connection.setAutoCommit(true);
+                }
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException ex) {
+            retire(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void retire(PooledConnection pooled) {
+        retired.increment();
+        try {
+            pooled.connection.close();
+        } catch (SQLException ex) {
+            // Already broken, which is why it is being retired
+        }
+    }
+
+    private void recordWait(long nanos) {
+        waits.increment();
+        totalWaitNanos.add(nanos);
+        maxWaitNanosSeen.accumulateAndGet(nanos, Math::max);
+    }
+
+    private final class PooledConnection {
+        private final Connection connection;
+        private final long createdAt = System.nanoTime();
+        private volatile long lastUsed = createdAt;
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Wraps the connection for one borrower. Closing the wrapper returns
+         * the connection to the pool, and using it afterwards fails.
+         */
+        private Connection lease() {
+            var returned = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close" -> {
+                                if (returned.compareAndSet(false, true)) {
+                                    release(this);
+                                }
+                                return null;
+                            }
+                            case "isClosed" -> {
+                                return returned.get() || connection.isClosed();
+                            }
+                            case "equals" -> {
+                                return proxy == args[0];
+                            }
+                            case "hashCode" -> {
+                                return System.identityHashCode(proxy);
+                            }
+                            case "toString" -> {
+                                return "Pooled " + connection;
+                            }
+                            default -> {
+                                if (returned.get()) {
+                                    throw new SQLException("Connection has been returned to the pool");
+                                }
+                                try {
+                                    return method.invoke(connection, args);
+                                } catch (InvocationTargetException ex) {
+                                    throw ex.getCause();
+                                }
+                            }
+                        }
+                    });
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import datamodel.*;
 
+import java.util.List;
+import java.util.Map;
+
 public interface DataAccess {
     void clear() throws DataAccessException;
     void createUser(UserData user) throws DataAccessException;
@@ -12,9 +16,68 @@ public interface DataAccess {
     void deleteAuth(String authToken) throws DataAccessException;
     int createGame(String name) throws DataAccessException;
     GameData getGame(Integer gameID) throws DataAccessException;
+    GameResult getGameInfo(int gameID) throws DataAccessException;
+
+    /**
+     * Reads a game with its version, which goes up every time the game or
+     * its seats change
+     */
+    VersionedGame getVersionedGame(int gameID) throws DataAccessException;
+
+    /**
+     * Reads just a game's version, to check whether a copy is still current
+     *
+     * @return the version, or null if there is no such game
+     */
+    Long getGameVersion(int gameID) throws DataAccessException;
     void updateGame(int gameID, ChessGame game) throws DataAccessException;
+
+    /**
+     * Stores the game only if it is still at the version the caller read
+     *
+     * @return whether the game was stored; if not, read it again and retry
+     */
+    boolean updateGame(int gameID, ChessGame game, long expectedVersion) throws DataAccessException;
+    void updateGames(Map<Integer, ChessGame> games) throws DataAccessException;
+    void appendMove(int gameID, ChessMove move, ChessGame game) throws DataAccessException;
+    void appendMoves(int gameID, List<ChessMove> moves, ChessGame game) throws DataAccessException;
+
+    /**
+     * Logs a move only if the game is still at the version the caller read
+     *
+     * @return whether the move was logged; if not, read the game again and
+     * retry
+     */
+    boolean appendMove(int gameID, ChessMove move, ChessGame game, long expectedVersion) throws DataAccessException;
+
+    /**
+     * Logs the moves and stores the game, raising its version to at least
+     * minVersion. For a cache that numbers the versions of the games it alone
+     * writes, so the store is never behind a version the cache handed out.
+     */
+    void writeGame(int gameID, List<ChessMove> moves, ChessGame game, long minVersion) throws DataAccessException;
+    List<ChessMove> getMoves(int gameID) throws DataAccessException;
     GameList getGameList() throws DataAccessException;
+
+    /**
+     * Lists games in gameID order, a page at a time. To get the next page,
+     * pass the last gameID of this one as afterGameID.
+     *
+     * @param username who is listing, for {@link GameFilter#mine()}
+     * @param afterGameID only games with a greater gameID, or 0 to start at
+     *                    the beginning
+     * @param limit the most games to return
+     */
+    GameList getGameList(GameFilter filter, String username, int afterGameID, int limit) throws DataAccessException;
     String getPlayer(ChessGame.TeamColor color, GameData game) throws DataAccessException;
-    void joinGame(ChessGame.TeamColor color, String username, Integer gameID) throws DataAccessException;
+
+    /**
+     * Takes a seat if it is empty, in one step, so two players can never
+     * both get it
+     *
+     * @return whether the user got the seat; false if anyone, the user
+     * included, already has it
+     */
+    boolean joinGame(ChessGame.TeamColor color, String username, Integer gameID) throws DataAccessException;
     void leaveGame(ChessGame.TeamColor color, Integer gameID) throws DataAccessException;
 }
@@ -1,6 +1,7 @@
 package dataaccess;
 
 import java.sql.*;
+import java.time.Duration;
 import java.util.Properties;
 
 public class DatabaseManager {
@@ -8,6 +9,8 @@ public class DatabaseManager {
     private static String dbUsername;
     private static String dbPassword;
     private static String connectionUrl;
+    private static ConnectionPool pool;
+    private static boolean shared;
 
     /*
      * Load the database information for the db.properties file.
@@ -30,10 +33,11 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Borrows a connection from the pool, with the catalog set based upon the
+     * properties specified in db.properties. Connections should be short-lived,
+     * and you must close the connection when you are done with it, which hands
+     * it back to the pool. The easiest way to do that is with a
+     * try-with-resource block.
      * <br/>
      * <code>
      * try (var conn = DatabaseManager.getConnection()) {
@@ -43,15 +47,47 @@ public class DatabaseManager {
      */
     static Connection getConnection() throws DataAccessException {
         try {
-            //do not wrap the following line with a try-with-resources
-            var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
-            conn.setCatalog(databaseName);
-            return conn;
+            return pool.getConnection();
         } catch (SQLException ex) {
             throw new DataAccessException("failed to get connection", ex);
         }
     }
 
+    /**
+     * @return how the connection pool is being used
+     */
+    public static ConnectionPool.Stats poolStats() {
+        return pool.stats();
+    }
+
+    /**
+     * @return whether other servers write the same database, set with
+     * db.shared; false unless it is set to true
+     */
+    public static boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Opens a new connection to the database, outside the pool. The driver
+     * keeps the statements prepared on each connection, so a pooled
+     * connection only parses a given SQL string once however many times it is
+     * prepared, and batches go to the server as a single request.
+     */
+    static Connection openConnection() throws SQLException {
+        var props = new Properties();
+        props.setProperty("user", dbUsername);
+        props.setProperty("password", dbPassword);
+        props.setProperty("useServerPrepStmts", "true");
+        props.setProperty("cachePrepStmts", "true");
+        props.setProperty("prepStmtCacheSize", "64");
+        props.setProperty("rewriteBatchedStatements", "true");
+        //do not wrap the following line with a try-with-resources
+        var conn = DriverManager.getConnection(connectionUrl, props);
+        conn.setCatalog(databaseName);
+        return conn;
+    }
+
     private static void loadPropertiesFromResources() {
         try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("db.properties")) {
             if (propStream == null) {
@@ -73,5 +109,12 @@ public class DatabaseManager {
         var host = props.getProperty("db.host");
         var port = Integer.parseInt(props.getProperty("db.port"));
         connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+        shared = Boolean.parseBoolean(props.getProperty("db.shared", "false"));
+
+        var poolSize = Integer.parseInt(props.getProperty("db.pool.size", "10"));
+        var maxLifetime = Duration.ofMillis(Long.parseLong(props.getProperty("db.pool.maxLifetimeMillis", "1800000")));
+        var maxWait = Duration.ofMillis(Long.parseLong(props.getProperty("db.pool.maxWaitMillis", "5000")));
+        var validateAfter = Duration.ofMillis(Long.parseLong(props.getProperty("db.pool.validateAfterMillis", "30000")));
+        pool = new ConnectionPool(DatabaseManager::openConnection, poolSize, maxLifetime, maxWait, validateAfter);
     }
 }
@@ -1,16 +1,96 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.GameCodec;
 import datamodel.*;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Keeps everything in memory, for running without a database. It is safe to
+ * use from many threads at once and takes no locks of its own.
+ * <p>
+ * Games are stored as {@link GameCodec} bytes, so every read hands out a
+ * fresh copy just like the database does, and nothing changes until it is
+ * written back. Every stored game has a version that starts at zero, as in
+ * the database, and goes up by one each time the game or its seats change.
+ * The move log is part of the stored game, so a move and the version it
+ * makes are swapped in together. Writes swap in a new stored game only if
+ * the one they started from is still current, and retry otherwise. Games are
+ * kept in gameID order, so listings can start from any gameID.
+ */
 public class MemoryDataAccess implements DataAccess {
-    private int gameID = 1;
-    private final HashMap<String, UserData> users = new HashMap<>();
-    private final HashMap<String, AuthData> auths = new HashMap<>();
-    private final HashMap<Integer, GameData> games = new HashMap<>();
+
+    /**
+     * A game as stored, never changed once made
+     */
+    private record StoredGame(int gameID, String whiteUsername, String blackUsername, String gameName,
+                              byte[] state, boolean ended, List<ChessMove> moves, long version) {
+        GameData toGameData() {
+            return new GameData(gameID, whiteUsername, blackUsername, gameName, GameCodec.decode(state));
+        }
+
+        GameResult toGameResult() {
+            return new GameResult(gameID, whiteUsername, blackUsername, gameName);
+        }
+
+        StoredGame withState(ChessGame game) {
+            return withState(game, List.of());
+        }
+
+        /**
+         * @param newMoves moves to add to the end of the log
+         */
+        StoredGame withState(ChessGame game, List<ChessMove> newMoves) {
+            return withState(game, newMoves, version + 1);
+        }
+
+        StoredGame withState(ChessGame game, List<ChessMove> newMoves, long nextVersion) {
+            var status = game.getGameStatus();
+            boolean hasEnded = status != ChessGame.GameStatus.PLAYING && status != ChessGame.GameStatus.CHECK;
+            var log = moves;
+            if (!newMoves.isEmpty()) {
+                var appended = new ArrayList<>(moves);
+                appended.addAll(newMoves);
+                log = List.copyOf(appended);
+            }
+            return new StoredGame(gameID, whiteUsername, blackUsername, gameName, GameCodec.encode(game), hasEnded,
+                    log, nextVersion);
+        }
+
+        StoredGame withPlayer(ChessGame.TeamColor color, String username) {
+            if (color == ChessGame.TeamColor.WHITE) {
+                return new StoredGame(gameID, username, blackUsername, gameName, state, ended, moves, version + 1);
+            }
+            return new StoredGame(gameID, whiteUsername, username, gameName, state, ended, moves, version + 1);
+        }
+
+        String player(ChessGame.TeamColor color) {
+            return (color == ChessGame.TeamColor.WHITE) ? whiteUsername : blackUsername;
+        }
+
+        boolean matches(GameFilter filter, String username) {
+            if (filter.openSeats() && (ended || (whiteUsername != null && blackUsername != null))) {
+                return false;
+            }
+            if (filter.mine() && !(Objects.equals(username, whiteUsername) || Objects.equals(username, blackUsername))) {
+                return false;
+            }
+            return !filter.inProgress() || (!ended && whiteUsername != null && blackUsername != null);
+        }
+    }
+
+    private final AtomicInteger nextGameID = new AtomicInteger(1);
+    private final ConcurrentHashMap<String, UserData> users = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AuthData> auths = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, StoredGame> games = new ConcurrentSkipListMap<>();
 
     @Override
     public void clear() {
@@ -18,9 +98,15 @@ public class MemoryDataAccess implements DataAccess {
         auths.clear();
         games.clear();
     }
+
+    /**
+     * @throws DataAccessException if the username is already taken
+     */
     @Override
-    public void createUser(UserData user) {
-        users.put(user.username(), user);
+    public void createUser(UserData user) throws DataAccessException {
+        if (users.putIfAbsent(user.username(), user) != null) {
+            throw new DataAccessException("Error: username already taken");
+        }
     }
 
     @Override
@@ -44,28 +130,125 @@ public class MemoryDataAccess implements DataAccess {
 
     @Override
     public int createGame(String name) {
-        var game = new GameData(gameID++, null, null, name, new ChessGame());
-        games.put(game.gameID(), game);
-        return game.gameID();
+        int id = nextGameID.getAndIncrement();
+        games.put(id, new StoredGame(id, null, null, name, GameCodec.encode(new ChessGame()), false,
+                List.of(), 0));
+        return id;
     }
 
     @Override
     public GameData getGame(Integer gameID) {
-        return games.get(gameID);
+        var stored = games.get(gameID);
+        return (stored == null) ? null : stored.toGameData();
+    }
+
+    @Override
+    public GameResult getGameInfo(int gameID) {
+        var stored = games.get(gameID);
+        return (stored == null) ? null : stored.toGameResult();
+    }
+
+    @Override
+    public VersionedGame getVersionedGame(int gameID) {
+        var stored = games.get(gameID);
+        return (stored == null) ? null : new VersionedGame(stored.toGameData(), stored.version());
+    }
+
+    @Override
+    public Long getGameVersion(int gameID) {
+        var stored = games.get(gameID);
+        return (stored == null) ? null : stored.version();
     }
 
     @Override
-    public void updateGame(int gameID, ChessGame game) {}
+    public void updateGame(int gameID, ChessGame game) {
+        appendMoves(gameID, List.of(), game);
+    }
+
+    @Override
+    public boolean updateGame(int gameID, ChessGame game, long expectedVersion) {
+        return appendMoves(gameID, List.of(), game, expectedVersion);
+    }
+
+    @Override
+    public void updateGames(Map<Integer, ChessGame> games) {
+        games.forEach(this::updateGame);
+    }
+
+    @Override
+    public void appendMove(int gameID, ChessMove move, ChessGame game) {
+        appendMoves(gameID, List.of(move), game);
+    }
+
+    @Override
+    public void appendMoves(int gameID, List<ChessMove> moves, ChessGame game) {
+        StoredGame current;
+        do {
+            current = games.get(gameID);
+            if (current == null) {
+                return;
+            }
+        } while (!games.replace(gameID, current, current.withState(game, moves)));
+    }
+
+    @Override
+    public boolean appendMove(int gameID, ChessMove move, ChessGame game, long expectedVersion) {
+        return appendMoves(gameID, List.of(move), game, expectedVersion);
+    }
+
+    @Override
+    public void writeGame(int gameID, List<ChessMove> moves, ChessGame game, long minVersion) {
+        StoredGame current;
+        do {
+            current = games.get(gameID);
+            if (current == null) {
+                return;
+            }
+        } while (!games.replace(gameID, current,
+                current.withState(game, moves, Math.max(current.version() + 1, minVersion))));
+    }
+
+    @Override
+    public List<ChessMove> getMoves(int gameID) {
+        var stored = games.get(gameID);
+        return (stored == null) ? new ArrayList<>() : new ArrayList<>(stored.moves());
+    }
 
     @Override
     public GameList getGameList() {
         ArrayList<GameResult> list = new ArrayList<>();
-        for (GameData game : games.values()) {
-            list.add(new GameResult(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName()));
+        for (StoredGame game : games.values()) {
+            list.add(game.toGameResult());
+        }
+        return new GameList(list);
+    }
+
+    @Override
+    public GameList getGameList(GameFilter filter, String username, int afterGameID, int limit) {
+        ArrayList<GameResult> list = new ArrayList<>();
+        for (StoredGame game : games.tailMap(afterGameID, false).values()) {
+            if (list.size() == limit) {
+                break;
+            }
+            if (game.matches(filter, username)) {
+                list.add(game.toGameResult());
+            }
         }
         return new GameList(list);
     }
 
+    /**
+     * Stores the game and logs the moves in one swap, if the game is still at
+     * the expected version
+     */
+    private boolean appendMoves(int gameID, List<ChessMove> moves, ChessGame game, long expectedVersion) {
+        var current = games.get(gameID);
+        if (current == null || current.version() != expectedVersion) {
+            return false;
+        }
+        return games.replace(gameID, current, current.withState(game, moves));
+    }
+
     @Override
     public String getPlayer(ChessGame.TeamColor color, GameData game) {
         if (color == ChessGame.TeamColor.WHITE) {
@@ -77,16 +260,31 @@ public class MemoryDataAccess implements DataAccess {
     }
 
     @Override
-    public void joinGame(ChessGame.TeamColor color, String username, Integer gameID) {
-        var game = games.get(gameID);
-        if (color == ChessGame.TeamColor.WHITE) {
-            games.replace(gameID, new GameData(gameID, username, game.blackUsername(), game.gameName(), game.game()));
-        }
-        else {
-            games.replace(gameID, new GameData(gameID, game.whiteUsername(), username, game.gameName(), game.game()));
+    public boolean joinGame(ChessGame.TeamColor color, String username, Integer gameID) {
+        while (true) {
+            var current = games.get(gameID);
+            if (current == null) {
+                return false;
+            }
+            if (current.player(color) != null) {
+                return false;
+            }
+            if (games.replace(gameID, current, current.withPlayer(color, username))) {
+                return true;
+            }
         }
     }
 
     @Override
-    public void leaveGame(ChessGame.TeamColor color, Integer gameID) {}
+    public void leaveGame(ChessGame.TeamColor color, Integer gameID) {
+        while (true) {
+            var current = games.get(gameID);
+            if (current == null || current.player(color) == null) {
+                return;
+            }
+            if (games.replace(gameID, current, current.withPlayer(color, null))) {
+                return;
+            }
+        }
+    }
 }
@@ -1,16 +1,29 @@
 package dataaccess;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
+import chess.ChessMove;
+import chess.GameCodec;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+import com.google.gson.JsonParseException;
 import datamodel.*;
+import utilities.Serializer;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
 
 public class MySqlDataAccess implements DataAccess{
 
+    /**
+     * How many moves apart appendMove rewrites the game's snapshot, which
+     * bounds how many moves getGame has to replay
+     */
+    static final int SNAPSHOT_INTERVAL = 16;
+
     public MySqlDataAccess() {
         try {
             configureDatabase();
@@ -41,8 +54,23 @@ public class MySqlDataAccess implements DataAccess{
               `whiteUsername` varchar(256),
               `blackUsername` varchar(256),
               `gameName` varchar(256) NOT NULL,
-              `game` longtext NOT NULL,
-              PRIMARY KEY (`gameID`)
+              `game` longtext,
+              `state` varbinary(64),
+              `snapshotPly` int NOT NULL DEFAULT 0,
+              `version` bigint NOT NULL DEFAULT 0,
+              `ended` boolean NOT NULL DEFAULT FALSE,
+              PRIMARY KEY (`gameID`),
+              INDEX `games_by_white` (`whiteUsername`, `gameID`),
+              INDEX `games_by_black` (`blackUsername`, `gameID`),
+              INDEX `games_by_ended` (`ended`, `gameID`)
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS  game_moves (
+              `gameID` int NOT NULL,
+              `ply` int NOT NULL,
+              `move` int NOT NULL,
+              PRIMARY KEY (`gameID`, `ply`)
             )
             """
     };
@@ -55,19 +83,82 @@ public class MySqlDataAccess implements DataAccess{
                     preparedStatement.executeUpdate();
                 }
             }
+            upgradeGamesTable(conn);
         } catch (SQLException ex) {
             throw new DataAccessException("Unable to configure database");
         }
     }
 
+    /**
+     * Brings games tables made by older versions up to date. Tables from
+     * before games were stored with GameCodec only have the JSON game column,
+     * so add the state column and let new rows leave the JSON empty. Rows
+     * that are never updated keep their JSON and are read through the
+     * fallback in getGame. Tables from before the move log get the ply their
+     * snapshot was taken at, which is zero for every existing row, and tables
+     * from before versioned writes get a version, starting at zero. Tables
+     * from before filtered listings get the ended flag, which existing rows
+     * only pick up when they are next written, and the indexes the filters
+     * use.
+     */
+    private void upgradeGamesTable(Connection conn) throws SQLException {
+        if (!hasColumn(conn, "games", "state")) {
+            alterTable(conn, "ALTER TABLE games ADD COLUMN `state` varbinary(64)");
+            alterTable(conn, "ALTER TABLE games MODIFY `game` longtext NULL");
+        }
+        if (!hasColumn(conn, "games", "snapshotPly")) {
+            alterTable(conn, "ALTER TABLE games ADD COLUMN `snapshotPly` int NOT NULL DEFAULT 0");
+        }
+        if (!hasColumn(conn, "games", "version")) {
+            alterTable(conn, "ALTER TABLE games ADD COLUMN `version` bigint NOT NULL DEFAULT 0");
+        }
+        if (!hasColumn(conn, "games", "ended")) {
+            alterTable(conn, "ALTER TABLE games ADD COLUMN `ended` boolean NOT NULL DEFAULT FALSE");
+        }
+        if (!hasIndex(conn, "games", "games_by_white")) {
+            alterTable(conn, "ALTER TABLE games ADD INDEX `games_by_white` (`whiteUsername`, `gameID`)");
+        }
+        if (!hasIndex(conn, "games", "games_by_black")) {
+            alterTable(conn, "ALTER TABLE games ADD INDEX `games_by_black` (`blackUsername`, `gameID`)");
+        }
+        if (!hasIndex(conn, "games", "games_by_ended")) {
+            alterTable(conn, "ALTER TABLE games ADD INDEX `games_by_ended` (`ended`, `gameID`)");
+        }
+    }
+
+    private boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, table, column)) {
+            return rs.next();
+        }
+    }
+
+    private boolean hasIndex(Connection conn, String table, String index) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getIndexInfo(conn.getCatalog(), null, table, false, true)) {
+            while (rs.next()) {
+                if (index.equals(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private void alterTable(Connection conn, String statement) throws SQLException {
+        try (var ps = conn.prepareStatement(statement)) {
+            ps.executeUpdate();
+        }
+    }
+
     @Override
     public void clear() throws DataAccessException {
         var statement1 = "TRUNCATE TABLE users";
         var statement2 = "TRUNCATE TABLE auths";
         var statement3 = "TRUNCATE TABLE games";
+        var statement4 = "TRUNCATE TABLE game_moves";
         executeUpdate(statement1);
         executeUpdate(statement2);
         executeUpdate(statement3);
+        executeUpdate(statement4);
     }
 
     @Override
@@ -131,16 +222,22 @@ public class MySqlDataAccess implements DataAccess{
 
     @Override
     public int createGame(String name) throws DataAccessException {
-        var statement = "INSERT INTO games (gameName, game) VALUES (?, ?)";
+        var statement = "INSERT INTO games (gameName, state) VALUES (?, ?)";
         var game = new ChessGame();
-        var gameJson = new Gson().toJson(game);
-        return executeUpdate(statement, name, gameJson);
+        return executeUpdate(statement, name, GameCodec.encode(game));
     }
 
     @Override
     public GameData getGame(Integer gameID) throws DataAccessException {
+        var read = getVersionedGame(gameID);
+        return (read == null) ? null : read.game();
+    }
+
+    @Override
+    public VersionedGame getVersionedGame(int gameID) throws DataAccessException {
         try (Connection conn = DatabaseManager.getConnection()) {
-            var statement = "SELECT * FROM games WHERE gameID=?";
+            var statement = "SELECT gameID, whiteUsername, blackUsername, gameName, game, state, snapshotPly, version "
+                    + "FROM games WHERE gameID=?";
             try (PreparedStatement ps = conn.prepareStatement(statement)) {
                 ps.setInt(1, gameID);
                 try (ResultSet rs = ps.executeQuery()) {
@@ -149,9 +246,44 @@ public class MySqlDataAccess implements DataAccess{
                         var wUser = rs.getString(2);
                         var bUser = rs.getString(3);
                         var name = rs.getString(4);
-                        var gameString = rs.getString(5);
-                        var game = new Gson().fromJson(gameString, ChessGame.class);
-                        return new GameData(id, wUser, bUser, name, game);
+                        var game = readGame(rs.getString(5), rs.getBytes(6));
+                        replayMoves(conn, id, rs.getInt(7), game);
+                        return new VersionedGame(new GameData(id, wUser, bUser, name, game), rs.getLong(8));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error");
+        }
+        return null;
+    }
+
+    @Override
+    public Long getGameVersion(int gameID) throws DataAccessException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT version FROM games WHERE gameID=?")) {
+                ps.setInt(1, gameID);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : null;
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error");
+        }
+    }
+
+    /**
+     * Reads a game's name and players without loading the game itself
+     */
+    @Override
+    public GameResult getGameInfo(int gameID) throws DataAccessException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            var statement = "SELECT gameID, whiteUsername, blackUsername, gameName FROM games WHERE gameID=?";
+            try (PreparedStatement ps = conn.prepareStatement(statement)) {
+                ps.setInt(1, gameID);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return new GameResult(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4));
                     }
                 }
             }
@@ -163,9 +295,218 @@ public class MySqlDataAccess implements DataAccess{
 
     @Override
     public void updateGame(int gameID, ChessGame game) throws DataAccessException {
-        String statement = "UPDATE games SET game=? WHERE gameID=?";
-        var gameJson = new Gson().toJson(game);
-        executeUpdate(statement, gameJson, gameID);
+        String statement = "UPDATE games SET state=?, game=NULL, snapshotPly=?, ended=?, version=version+1 "
+                + "WHERE gameID=?";
+        executeUpdate(statement, GameCodec.encode(game), game.getPly(), hasEnded(game), gameID);
+    }
+
+    @Override
+    public boolean updateGame(int gameID, ChessGame game, long expectedVersion) throws DataAccessException {
+        String statement = "UPDATE games SET state=?, game=NULL, snapshotPly=?, ended=?, version=version+1 "
+                + "WHERE gameID=? AND version=?";
+        return executeCount(statement, GameCodec.encode(game), game.getPly(), hasEnded(game), gameID,
+                expectedVersion) > 0;
+    }
+
+    /**
+     * Stores several games in one batch and one transaction
+     */
+    @Override
+    public void updateGames(Map<Integer, ChessGame> games) throws DataAccessException {
+        if (games.isEmpty()) {
+            return;
+        }
+        String statement = "UPDATE games SET state=?, game=NULL, snapshotPly=?, ended=?, version=version+1 "
+                + "WHERE gameID=?";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(statement)) {
+                for (var entry : games.entrySet()) {
+                    ps.setBytes(1, GameCodec.encode(entry.getValue()));
+                    ps.setInt(2, entry.getValue().getPly());
+                    ps.setBoolean(3, hasEnded(entry.getValue()));
+                    ps.setInt(4, entry.getKey());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            throw new DataAccessException("Error", e);
+        }
+    }
+
+    /**
+     * Logs a move as one small row instead of rewriting the whole game, and
+     * every SNAPSHOT_INTERVAL moves also stores the game as a snapshot
+     *
+     * @param game the game after the move was made
+     */
+    @Override
+    public void appendMove(int gameID, ChessMove move, ChessGame game) throws DataAccessException {
+        appendMoves(gameID, List.of(move), game);
+    }
+
+    /**
+     * Logs several moves in a row in one batch, storing the game as a
+     * snapshot if they reach or pass a multiple of SNAPSHOT_INTERVAL
+     *
+     * @param game the game after the last of the moves was made
+     */
+    @Override
+    public void appendMoves(int gameID, List<ChessMove> moves, ChessGame game) throws DataAccessException {
+        if (!moves.isEmpty()) {
+            appendMoves(gameID, moves, game, null);
+        }
+    }
+
+    @Override
+    public boolean appendMove(int gameID, ChessMove move, ChessGame game, long expectedVersion)
+            throws DataAccessException {
+        return appendMoves(gameID, List.of(move), game, expectedVersion);
+    }
+
+    /**
+     * Bumps the game's version, storing its snapshot too if it is due, and
+     * then logs the moves, all in one transaction. The version is bumped
+     * first so that, when a version is expected, a write that has lost the
+     * race finds out before it logs anything.
+     *
+     * @param expectedVersion the version the game must still be at, or null
+     *                        to write whatever it is at
+     * @return whether the moves were logged
+     */
+    private boolean appendMoves(int gameID, List<ChessMove> moves, ChessGame game, Long expectedVersion)
+            throws DataAccessException {
+        int lastPly = game.getPly();
+        int firstPly = lastPly - moves.size() + 1;
+        boolean snapshot = lastPly / SNAPSHOT_INTERVAL > (firstPly - 1) / SNAPSHOT_INTERVAL;
+        var statement = snapshot
+                ? "UPDATE games SET state=?, game=NULL, snapshotPly=?, ended=?, version=version+1 WHERE gameID=?"
+                : "UPDATE games SET ended=?, version=version+1 WHERE gameID=?";
+        if (expectedVersion != null) {
+            statement += " AND version=?";
+        }
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(statement)) {
+                int index = 1;
+                if (snapshot) {
+                    ps.setBytes(index++, GameCodec.encode(game));
+                    ps.setInt(index++, lastPly);
+                }
+                ps.setBoolean(index++, hasEnded(game));
+                ps.setInt(index++, gameID);
+                if (expectedVersion != null) {
+                    ps.setLong(index, expectedVersion);
+                }
+                if (ps.executeUpdate() == 0 && expectedVersion != null) {
+                    conn.rollback();
+                    return false;
+                }
+            }
+            logMoves(conn, gameID, firstPly, moves);
+            conn.commit();
+            return true;
+        } catch (SQLException e) {
+            throw new DataAccessException("Error", e);
+        }
+    }
+
+    /**
+     * Stores the game as a snapshot and logs the moves in one transaction
+     */
+    @Override
+    public void writeGame(int gameID, List<ChessMove> moves, ChessGame game, long minVersion)
+            throws DataAccessException {
+        var statement = "UPDATE games SET state=?, game=NULL, snapshotPly=?, ended=?, "
+                + "version=GREATEST(version+1, ?) WHERE gameID=?";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(statement)) {
+                setParams(ps, GameCodec.encode(game), game.getPly(), hasEnded(game), minVersion, gameID);
+                ps.executeUpdate();
+            }
+            logMoves(conn, gameID, game.getPly() - moves.size() + 1, moves);
+            conn.commit();
+        } catch (SQLException e) {
+            throw new DataAccessException("Error", e);
+        }
+    }
+
+    private void logMoves(Connection conn, int gameID, int firstPly, List<ChessMove> moves) throws SQLException {
+        if (moves.isEmpty()) {
+            return;
+        }
+        var statement = "INSERT INTO game_moves (gameID, ply, move) VALUES (?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(statement)) {
+            for (int i = 0; i < moves.size(); i++) {
+                ps.setInt(1, gameID);
+                ps.setInt(2, firstPly + i);
+                ps.setInt(3, PackedMove.of(moves.get(i)));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @Override
+    public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+        var moves = new ArrayList<ChessMove>();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            var statement = "SELECT move FROM game_moves WHERE gameID=? ORDER BY ply";
+            try (PreparedStatement ps = conn.prepareStatement(statement)) {
+                ps.setInt(1, gameID);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        moves.add(PackedMove.toChessMove(rs.getInt(1)));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error");
+        }
+        return moves;
+    }
+
+    /**
+     * Brings a game read from its snapshot up to date by making the moves
+     * logged after the snapshot was taken
+     */
+    private void replayMoves(Connection conn, int gameID, int snapshotPly, ChessGame game)
+            throws SQLException, DataAccessException {
+        var statement = "SELECT move FROM game_moves WHERE gameID=? AND ply>? ORDER BY ply";
+        boolean replayed = false;
+        try (PreparedStatement ps = conn.prepareStatement(statement)) {
+            ps.setInt(1, gameID);
+            ps.setInt(2, snapshotPly);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    game.makeMove(PackedMove.toChessMove(rs.getInt(1)));
+                    replayed = true;
+                }
+            }
+        } catch (InvalidMoveException ex) {
+            throw new DataAccessException("Unable to replay moves of game " + gameID, ex);
+        }
+        if (replayed) {
+            game.evaluateStatus();
+        }
+    }
+
+    /**
+     * Reads a game from its encoded state, falling back to the JSON that rows
+     * written before GameCodec was used still hold
+     */
+    private ChessGame readGame(String gameJson, byte[] state) throws DataAccessException {
+        try {
+            if (state != null) {
+                return GameCodec.decode(state);
+            }
+            return Serializer.GSON.fromJson(gameJson, ChessGame.class);
+        } catch (IllegalArgumentException | JsonParseException ex) {
+            throw new DataAccessException("Unable to read game", ex);
+        }
     }
 
     @Override
@@ -190,6 +531,47 @@ public class MySqlDataAccess implements DataAccess{
         return new GameList(list);
     }
 
+    /**
+     * Pages through games by gameID, so each page is an index range scan
+     * that stops after limit rows no matter how many games come before it.
+     * The filters are served by the indexes on each seat and on ended.
+     */
+    @Override
+    public GameList getGameList(GameFilter filter, String username, int afterGameID, int limit)
+            throws DataAccessException {
+        var statement = new StringBuilder("SELECT gameID, whiteUsername, blackUsername, gameName FROM games "
+                + "WHERE gameID > ?");
+        var params = new ArrayList<Object>();
+        params.add(afterGameID);
+        if (filter.openSeats()) {
+            statement.append(" AND ended = FALSE AND (whiteUsername IS NULL OR blackUsername IS NULL)");
+        }
+        if (filter.mine()) {
+            statement.append(" AND (whiteUsername = ? OR blackUsername = ?)");
+            params.add(username);
+            params.add(username);
+        }
+        if (filter.inProgress()) {
+            statement.append(" AND ended = FALSE AND whiteUsername IS NOT NULL AND blackUsername IS NOT NULL");
+        }
+        statement.append(" ORDER BY gameID LIMIT ?");
+        params.add(limit);
+        ArrayList<GameResult> list = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(statement.toString())) {
+                setParams(ps, params.toArray());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        list.add(new GameResult(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error", e);
+        }
+        return new GameList(list);
+    }
+
     @Override
     public String getPlayer(ChessGame.TeamColor color, GameData game) throws DataAccessException {
         try (Connection conn = DatabaseManager.getConnection()) {
@@ -214,26 +596,32 @@ public class MySqlDataAccess implements DataAccess{
         return null;
     }
 
+    /**
+     * Only changes the row if the seat is empty, so the database decides who
+     * gets a seat two players ask for at once
+     */
     @Override
-    public void joinGame(ChessGame.TeamColor color, String username, Integer gameID) throws DataAccessException {
+    public boolean joinGame(ChessGame.TeamColor color, String username, Integer gameID) throws DataAccessException {
         String statement;
         if (color == ChessGame.TeamColor.WHITE) {
-            statement = "UPDATE games SET whiteUsername=? WHERE gameID=?";
+            statement = "UPDATE games SET whiteUsername=?, version=version+1 "
+                    + "WHERE gameID=? AND whiteUsername IS NULL";
         }
         else {
-            statement = "UPDATE games SET blackUsername=? WHERE gameID=?";
+            statement = "UPDATE games SET blackUsername=?, version=version+1 "
+                    + "WHERE gameID=? AND blackUsername IS NULL";
         }
-        executeUpdate(statement, username, gameID);
+        return executeCount(statement, username, gameID) > 0;
     }
 
     @Override
     public void leaveGame(ChessGame.TeamColor color, Integer gameID) throws DataAccessException {
         String statement;
         if (color == ChessGame.TeamColor.WHITE) {
-            statement = "UPDATE games SET whiteUsername=? WHERE gameID=?";
+            statement = "UPDATE games SET whiteUsername=?, version=version+1 WHERE gameID=?";
         }
         else {
-            statement = "UPDATE games SET blackUsername=? WHERE gameID=?";
+            statement = "UPDATE games SET blackUsername=?, version=version+1 WHERE gameID=?";
         }
         executeUpdate(statement, null, gameID);
     }
@@ -241,18 +629,7 @@ public class MySqlDataAccess implements DataAccess{
     private int executeUpdate(String statement, Object... params) throws DataAccessException {
         try (Connection conn = DatabaseManager.getConnection()) {
             try (PreparedStatement ps = conn.prepareStatement(statement, RETURN_GENERATED_KEYS)) {
-                for (int i = 0; i < params.length; i++) {
-                    Object param = params[i];
-                    if (param instanceof String p) {
-                        ps.setString(i + 1, p);
-                    }
-                    else if (param instanceof Integer p) {
-                        ps.setInt(i + 1, p);
-                    }
-                    else if (param == null) {
-                        ps.setNull(i + 1, Types.VARCHAR);
-                    }
-                }
+                setParams(ps, params);
                 ps.executeUpdate();
 
                 ResultSet rs = ps.getGeneratedKeys();
@@ -266,4 +643,47 @@ public class MySqlDataAccess implements DataAccess{
             throw new DataAccessException("Error");
         }
     }
+
+    /**
+     * @return how many rows the statement changed
+     */
+    private int executeCount(String statement, Object... params) throws DataAccessException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(statement)) {
+                setParams(ps, params);
+                return ps.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error");
+        }
+    }
+
+    private void setParams(PreparedStatement ps, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            Object param = params[i];
+            if (param instanceof String p) {
+                ps.setString(i + 1, p);
+            }
+            else if (param instanceof Integer p) {
+                ps.setInt(i + 1, p);
+            }
+            else if (param instanceof Long p) {
+                ps.setLong(i + 1, p);
+            }
+            else if (param instanceof Boolean p) {
+                ps.setBoolean(i + 1, p);
+            }
+            else if (param instanceof byte[] p) {
+                ps.setBytes(i + 1, p);
+            }
+            else if (param == null) {
+                ps.setNull(i + 1, Types.VARCHAR);
+            }
+        }
+    }
+
+    private static boolean hasEnded(ChessGame game) {
+        var status = game.getGameStatus();
+        return status != ChessGame.GameStatus.PLAYING && status != ChessGame.GameStatus.CHECK;
+    }
 }
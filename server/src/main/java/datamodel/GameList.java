@@ -1,6 +1,6 @@
 package datamodel;
 
-import com.google.gson.Gson;
+import utilities.Serializer;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -11,6 +11,6 @@ public class GameList extends ArrayList<GameResult> {
     }
 
     public String toString() {
-        return new Gson().toJson(this.toArray());
+        return Serializer.GSON.toJson(this.toArray());
     }
 }
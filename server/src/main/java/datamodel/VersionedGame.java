@@ -0,0 +1,8 @@
+package datamodel;
+
+/**
+ * A game and the version it was read at, for writes that should only happen
+ * if nothing else has changed the game since
+ */
+public record VersionedGame(GameData game, long version) {
+}
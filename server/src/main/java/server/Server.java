@@ -1,12 +1,15 @@
 package server;
 
-import com.google.gson.Gson;
-import dataaccess.DataAccess;
+import dataaccess.CachingDataAccess;
+import dataaccess.DataAccessException;
+import dataaccess.DatabaseManager;
 import dataaccess.MySqlDataAccess;
 import datamodel.AuthData;
 import datamodel.GameData;
+import datamodel.GameFilter;
 import datamodel.JoinRequest;
 import datamodel.UserData;
+import exception.BadRequestException;
 import exception.ServerException;
 import io.javalin.*;
 import io.javalin.http.Context;
@@ -14,20 +17,27 @@ import server.websocket.WebSocketHandler;
 import service.AdminService;
 import service.GameService;
 import service.UserService;
+import utilities.Serializer;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class Server {
 
     private final Javalin server;
 
+    private final CachingDataAccess dataAccess;
+
     private final UserService userService;
     private final GameService gameService;
     private final AdminService adminService;
     private final WebSocketHandler webSocketHandler;
 
     public Server() {
-//        DataAccess dataAccess = new MemoryDataAccess();
-        DataAccess dataAccess = new MySqlDataAccess();
+//        dataAccess = new CachingDataAccess(new MemoryDataAccess(), Duration.ofMillis(250));
+        var mode = DatabaseManager.isShared() ? CachingDataAccess.Mode.SHARED : CachingDataAccess.Mode.ONLY_WRITER;
+        dataAccess = new CachingDataAccess(new MySqlDataAccess(), Duration.ofMillis(250), mode);
         userService = new UserService(dataAccess);
         gameService = new GameService(dataAccess);
         adminService = new AdminService(dataAccess);
@@ -44,6 +54,7 @@ public class Server {
         server.ws("/ws", ws -> {
             ws.onConnect(webSocketHandler);
             ws.onMessage(webSocketHandler);
+            ws.onBinaryMessage(webSocketHandler);
             ws.onClose(webSocketHandler);
         });
         server.exception(ServerException.class, this::exceptionHandler);
@@ -64,7 +75,7 @@ public class Server {
     }
 
     private void register(Context ctx) throws Exception {
-        var serializer = new Gson();
+        var serializer = Serializer.GSON;
         var req = serializer.fromJson(ctx.body(), UserData.class);
         var res = userService.register(req);
         var regResult = serializer.toJson(res);
@@ -74,7 +85,7 @@ public class Server {
     }
 
     private void login(Context ctx) throws Exception {
-        var serializer = new Gson();
+        var serializer = Serializer.GSON;
         var req = serializer.fromJson(ctx.body(), UserData.class);
         AuthData res = userService.login(req);
         var loginResult = serializer.toJson(res);
@@ -89,16 +100,52 @@ public class Server {
         ctx.result("{}");
     }
 
+    /**
+     * Lists games. Optional query parameters: open, mine and inProgress (true
+     * to filter), after (the gameID to continue after) and limit (the page
+     * size, at most 100). Without after or limit every matching game is
+     * listed. Otherwise one page is listed, and when it is full, "next" in
+     * the response is the after value for the next page.
+     */
     private void listGames(Context ctx) throws Exception {
-        var serializer = new Gson();
+        var serializer = Serializer.GSON;
         var req = ctx.header("Authorization");
-        var res = gameService.listGames(req);
+        var filter = new GameFilter(flag(ctx, "open"), flag(ctx, "mine"), flag(ctx, "inProgress"));
+        var body = new LinkedHashMap<String, Object>();
+        if (ctx.queryParam("after") == null && ctx.queryParam("limit") == null) {
+            body.put("games", gameService.listGames(req, filter));
+        }
+        else {
+            int after = number(ctx, "after", 0);
+            int limit = number(ctx, "limit", GameService.MAX_PAGE_SIZE);
+            var res = gameService.listGames(req, filter, after, limit);
+            body.put("games", res);
+            if (res.size() == limit) {
+                body.put("next", res.getLast().gameID());
+            }
+        }
         ctx.status(200);
-        ctx.result(serializer.toJson(Map.of("games", res)));
+        ctx.result(serializer.toJson(body));
+    }
+
+    private static boolean flag(Context ctx, String name) {
+        return Boolean.parseBoolean(ctx.queryParam(name));
+    }
+
+    private static int number(Context ctx, String name, int fallback) throws BadRequestException {
+        var value = ctx.queryParam(name);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException("Error: bad request");
+        }
     }
 
     private void createGame(Context ctx) throws Exception {
-        var serializer = new Gson();
+        var serializer = Serializer.GSON;
         var auth = ctx.header("Authorization");
         var name = serializer.fromJson(ctx.body(), GameData.class);
         var gameID = gameService.createGame(auth, name.gameName());
@@ -107,7 +154,7 @@ public class Server {
     }
 
     private void joinGame(Context ctx) throws Exception {
-        var serializer = new Gson();
+        var serializer = Serializer.GSON;
         var auth = ctx.header("Authorization");
         var req = serializer.fromJson(ctx.body(), JoinRequest.class);
         gameService.joinGame(auth, req.playerColor(), req.gameID());
@@ -122,5 +169,10 @@ public class Server {
 
     public void stop() {
         server.stop();
+        try {
+            dataAccess.close();
+        } catch (DataAccessException ex) {
+            System.err.println("Failed to write games to the database: " + ex.getMessage());
+        }
     }
 }
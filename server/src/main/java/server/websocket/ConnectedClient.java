@@ -2,5 +2,13 @@ package server.websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
 
-public record ConnectedClient(Session session, String username, int gameID) {
+/**
+ * @param moveUpdates whether the client is sent MOVE messages after each move
+ *                    instead of the whole game
+ */
+public record ConnectedClient(Session session, String username, int gameID, boolean moveUpdates) {
+
+    public ConnectedClient(Session session, String username, int gameID) {
+        this(session, username, gameID, false);
+    }
 }
@@ -1,41 +1,219 @@
 package server.websocket;
 
-import com.google.gson.Gson;
+import chess.ChessGame;
+import chess.ChessMove;
 import org.eclipse.jetty.websocket.api.Session;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
 import websocket.messages.ServerMessage;
 
-import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Tracks connected clients and the game each one is watching. Clients are
+ * also indexed by game, so a broadcast only visits that game's sessions.
+ * Sessions found closed while broadcasting are removed.
+ * <p>
+ * A broadcast encodes its message once per wire format and sends the same
+ * frame to every session using that format. The LOAD_GAME for each watched
+ * game is also kept until the game changes, so clients joining a game that
+ * has not moved reuse it.
+ * <p>
+ * Sends never block. Each session has its own bounded {@link SessionOutbox},
+ * and a client that stops reading is disconnected rather than holding up
+ * everyone else.
+ */
 public class ConnectionManager {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    /**
+     * A LOAD_GAME, and the state of the game it was made from
+     */
+    private record LoadGameFrame(ChessGame game, int ply, ChessGame.GameStatus status, OutgoingMessage message) {
+        boolean matches(ChessGame current) {
+            return game == current && ply == current.getPly() && status == current.getGameStatus();
+        }
+    }
+
     public final ConcurrentHashMap<Session, ConnectedClient> connections = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Set<Session>> games = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, LoadGameFrame> loadGames = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Session, SessionOutbox> outboxes = new ConcurrentHashMap<>();
+    private final int queueCapacity;
+
+    public ConnectionManager() {
+        this(DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param queueCapacity how many messages can wait for one client before
+     *                      it is treated as too slow
+     */
+    public ConnectionManager(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
 
     public void add(ConnectedClient client) {
-        connections.put(client.session(), client);
+        var previous = connections.put(client.session(), client);
+        if (previous != null && previous.gameID() != client.gameID()) {
+            unindex(previous.gameID(), previous.session());
+        }
+        games.compute(client.gameID(), (id, sessions) -> {
+            if (sessions == null) {
+                sessions = ConcurrentHashMap.newKeySet();
+            }
+            sessions.add(client.session());
+            return sessions;
+        });
     }
 
     public void remove(Session session) {
-        connections.remove(session);
+        outboxes.remove(session);
+        var client = connections.remove(session);
+        if (client != null) {
+            unindex(client.gameID(), session);
+        }
+    }
+
+    /**
+     * @return the number of sessions watching the game
+     */
+    public int count(int gameID) {
+        var sessions = games.get(gameID);
+        return (sessions == null) ? 0 : sessions.size();
+    }
+
+    /**
+     * @return how many messages are waiting to be sent to the session
+     */
+    public int queueDepth(Session session) {
+        var outbox = outboxes.get(session);
+        return (outbox == null) ? 0 : outbox.depth();
+    }
+
+    /**
+     * @return how many messages are waiting for each session that has had
+     * something sent to it
+     */
+    public Map<Session, Integer> queueDepths() {
+        var depths = new HashMap<Session, Integer>();
+        outboxes.forEach((session, outbox) -> depths.put(session, outbox.depth()));
+        return depths;
+    }
+
+    public void broadcast(int gameID, Session excludeSession, ServerMessage message) {
+        if (games.containsKey(gameID)) {
+            broadcastFrame(gameID, excludeSession, new OutgoingMessage(message));
+        }
+    }
+
+    /**
+     * Sends the game's current state to everyone watching it
+     */
+    public void broadcastLoadGame(int gameID, ChessGame game) {
+        if (games.containsKey(gameID)) {
+            broadcastFrame(gameID, null, loadGameFrame(gameID, game));
+        }
     }
 
-    public void broadcast(int gameID, Session excludeSession, ServerMessage message) throws IOException {
-        var msg = new Gson().toJson(message);
-        for (ConnectedClient c : connections.values()) {
-            Session session = c.session();
-            if (c.gameID() == gameID && !session.equals(excludeSession) && session.isOpen()) {
-                session.getRemote().sendString(msg);
+    /**
+     * Tells everyone watching the game about a move. Clients that asked for
+     * MOVE messages get just the move, and the rest get the whole game.
+     */
+    public void broadcastMove(int gameID, ChessGame game, ChessMove move) {
+        var sessions = games.get(gameID);
+        if (sessions == null) {
+            return;
+        }
+        OutgoingMessage loadGame = null;
+        OutgoingMessage moveUpdate = null;
+        for (Session session : sessions) {
+            var client = connections.get(session);
+            if (client == null || !session.isOpen()) {
+                remove(session);
+            }
+            else if (client.moveUpdates()) {
+                if (moveUpdate == null) {
+                    moveUpdate = new OutgoingMessage(new MoveMessage(move, game));
+                }
+                send(session, moveUpdate);
+            }
+            else {
+                if (loadGame == null) {
+                    loadGame = loadGameFrame(gameID, game);
+                }
+                send(session, loadGame);
             }
         }
     }
 
+    /**
+     * Sends the game's current state to one client
+     */
+    public void sendLoadGame(Session session, int gameID, ChessGame game) {
+        send(session, loadGameFrame(gameID, game));
+    }
+
     public void sendToClient(Session session, ServerMessage message) {
+        send(session, new OutgoingMessage(message));
+    }
+
+    /**
+     * Returns the LOAD_GAME for the game, making a new one only if the game
+     * has changed since it was last sent
+     */
+    OutgoingMessage loadGameFrame(int gameID, ChessGame game) {
+        var cached = loadGames.get(gameID);
+        if (cached != null && cached.matches(game)) {
+            return cached.message();
+        }
+        var frame = new LoadGameFrame(game, game.getPly(), game.getGameStatus(),
+                new OutgoingMessage(new LoadGameMessage(game)));
+        if (games.containsKey(gameID)) {
+            loadGames.put(gameID, frame);
+        }
+        return frame.message();
+    }
+
+    private void broadcastFrame(int gameID, Session excludeSession, OutgoingMessage message) {
+        var sessions = games.get(gameID);
+        if (sessions == null) {
+            return;
+        }
+        for (Session session : sessions) {
+            if (!session.isOpen()) {
+                remove(session);
+            }
+            else if (!session.equals(excludeSession)) {
+                send(session, message);
+            }
+        }
+    }
+
+    private void send(Session session, OutgoingMessage message) {
         if (session != null && session.isOpen()) {
-            try {
-                var json = new Gson().toJson(message);
-                session.getRemote().sendString(json);
-            } catch (IOException e) {
-                System.err.println("Failed to send message to client: " + e.getMessage());
+            var outbox = outboxes.computeIfAbsent(session, s -> new SessionOutbox(s, queueCapacity));
+            if (!outbox.offer(message.frameFor(session))) {
+                remove(session);
             }
         }
     }
+
+    /**
+     * Drops a session from a game's index, and the game itself once nobody is
+     * left watching it
+     */
+    private void unindex(int gameID, Session session) {
+        var remaining = games.computeIfPresent(gameID, (id, sessions) -> {
+            sessions.remove(session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+        if (remaining == null) {
+            loadGames.remove(gameID);
+        }
+    }
 }
@@ -0,0 +1,74 @@
+package server.websocket;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs tasks one game at a time. Each game has its own mailbox, and tasks
+ * for the same game run one after another in the order they were submitted,
+ * while different games run at the same time. Mailboxes are drained on
+ * virtual threads, so tasks can block on the database without tying up a
+ * platform thread, and a game's mailbox is removed once it is empty.
+ */
+public class GameExecutor {
+
+    private static final class Mailbox {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean draining;
+    }
+
+    private final ConcurrentHashMap<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    /**
+     * Queues a task behind any others for the same game
+     */
+    public void submit(int gameID, Runnable task) {
+        var start = new Mailbox[1];
+        mailboxes.compute(gameID, (id, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox();
+            }
+            mailbox.tasks.add(task);
+            if (!mailbox.draining) {
+                mailbox.draining = true;
+                start[0] = mailbox;
+            }
+            return mailbox;
+        });
+        if (start[0] != null) {
+            Thread.ofVirtual().name("game-" + gameID).start(() -> drain(gameID, start[0]));
+        }
+    }
+
+    /**
+     * @return the number of games with tasks queued or running
+     */
+    public int activeGames() {
+        return mailboxes.size();
+    }
+
+    private void drain(int gameID, Mailbox mailbox) {
+        while (true) {
+            var next = new Runnable[1];
+            // The mailbox is only touched inside compute, which also decides
+            // whether it is finished, so a task submitted now is never stranded
+            mailboxes.compute(gameID, (id, current) -> {
+                next[0] = mailbox.tasks.poll();
+                if (next[0] == null) {
+                    mailbox.draining = false;
+                    return null;
+                }
+                return current;
+            });
+            if (next[0] == null) {
+                return;
+            }
+            try {
+                next[0].run();
+            } catch (RuntimeException ex) {
+                System.err.println("Game " + gameID + " task failed: " + ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import utilities.BinaryProtocol;
+import utilities.Serializer;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.ServerMessage;
+
+/**
+ * A message on its way to one or more sessions. It is encoded at most once
+ * for each wire format, the first time a session using that format needs it:
+ * JSON text by default, or binary for sessions that negotiated
+ * {@link BinaryProtocol#SUBPROTOCOL}.
+ */
+final class OutgoingMessage {
+
+    private final ServerMessage message;
+    private final boolean loadGame;
+    private SessionOutbox.Frame text;
+    private SessionOutbox.Frame binary;
+
+    /**
+     * @param message the message, which must not change once it is sent
+     */
+    OutgoingMessage(ServerMessage message) {
+        this.message = message;
+        this.loadGame = message instanceof LoadGameMessage;
+    }
+
+    synchronized SessionOutbox.Frame frameFor(Session session) {
+        if (isBinary(session)) {
+            if (binary == null) {
+                binary = SessionOutbox.Frame.binary(BinaryProtocol.encode(message), loadGame);
+            }
+            return binary;
+        }
+        if (text == null) {
+            text = SessionOutbox.Frame.text(Serializer.GSON.toJson(message), loadGame);
+        }
+        return text;
+    }
+
+    static boolean isBinary(Session session) {
+        var response = session.getUpgradeResponse();
+        return response != null && BinaryProtocol.SUBPROTOCOL.equals(response.getAcceptedSubProtocol());
+    }
+}
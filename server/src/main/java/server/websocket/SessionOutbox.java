@@ -0,0 +1,140 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Frames waiting to be sent to one session. Frames are sent without blocking,
+ * one at a time and in order, so a client that reads slowly only holds up its
+ * own messages.
+ * <p>
+ * The queue is bounded. When it is full, queued LOAD_GAME frames are thrown
+ * away except for the newest, since a client only needs the latest state. If
+ * that does not make room the client is too far behind, and it is
+ * disconnected.
+ */
+class SessionOutbox implements WriteCallback {
+
+    /**
+     * An encoded message; exactly one of text and bytes is set
+     *
+     * @param loadGame whether the message is a LOAD_GAME, which a later
+     *                 LOAD_GAME makes out of date
+     */
+    record Frame(String text, byte[] bytes, boolean loadGame) {
+        static Frame text(String text, boolean loadGame) {
+            return new Frame(text, null, loadGame);
+        }
+
+        static Frame binary(byte[] bytes, boolean loadGame) {
+            return new Frame(null, bytes, loadGame);
+        }
+    }
+
+    private final Session session;
+    private final int capacity;
+    private final ArrayDeque<Frame> queue = new ArrayDeque<>();
+    private boolean sending;
+    private boolean closed;
+
+    SessionOutbox(Session session, int capacity) {
+        this.session = session;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Queues a frame, sending it straight away if nothing else is being sent
+     *
+     * @return false if the session is disconnected, either already or because
+     * it fell too far behind
+     */
+    boolean offer(Frame frame) {
+        boolean disconnect = false;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            if (sending) {
+                if (queue.size() < capacity || makeRoom(frame)) {
+                    queue.add(frame);
+                    return true;
+                }
+                closed = true;
+                queue.clear();
+                disconnect = true;
+            }
+            else {
+                sending = true;
+            }
+        }
+        if (disconnect) {
+            System.err.println("Disconnecting client that is not keeping up: " + session);
+            session.close(StatusCode.POLICY_VIOLATION, "Not reading messages fast enough");
+            return false;
+        }
+        send(frame);
+        return true;
+    }
+
+    /**
+     * @return the number of frames waiting behind the one being sent
+     */
+    synchronized int depth() {
+        return queue.size();
+    }
+
+    @Override
+    public void writeSuccess() {
+        Frame next;
+        synchronized (this) {
+            next = queue.poll();
+            if (next == null) {
+                sending = false;
+                return;
+            }
+        }
+        send(next);
+    }
+
+    @Override
+    public void writeFailed(Throwable ex) {
+        synchronized (this) {
+            closed = true;
+            queue.clear();
+        }
+        System.err.println("Failed to send message to client: " + ex.getMessage());
+    }
+
+    private void send(Frame frame) {
+        if (frame.text() != null) {
+            session.getRemote().sendString(frame.text(), this);
+        }
+        else {
+            session.getRemote().sendBytes(ByteBuffer.wrap(frame.bytes()), this);
+        }
+    }
+
+    /**
+     * Drops every queued LOAD_GAME but the newest, counting the one being
+     * queued as newest
+     *
+     * @return whether there is now room for another frame
+     */
+    private boolean makeRoom(Frame frame) {
+        Frame newest = null;
+        if (!frame.loadGame()) {
+            for (var queued : queue) {
+                if (queued.loadGame()) {
+                    newest = queued;
+                }
+            }
+        }
+        var keep = newest;
+        queue.removeIf(queued -> queued.loadGame() && queued != keep);
+        return queue.size() < capacity;
+    }
+}
@@ -2,7 +2,6 @@ package server.websocket;
 
 import chess.ChessGame;
 import chess.InvalidMoveException;
-import com.google.gson.Gson;
 import datamodel.GameData;
 import exception.BadRequestException;
 import io.javalin.websocket.*;
@@ -10,16 +9,32 @@ import org.eclipse.jetty.websocket.api.Session;
 import org.jetbrains.annotations.NotNull;
 import service.GameService;
 import service.UserService;
+import utilities.BinaryProtocol;
+import utilities.Serializer;
+import websocket.commands.ConnectCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ErrorMessage;
-import websocket.messages.LoadGameMessage;
 import websocket.messages.NotificationMessage;
 import websocket.messages.ServerMessage;
 
-public class WebSocketHandler implements WsConnectHandler,  WsMessageHandler, WsCloseHandler {
+import java.nio.ByteBuffer;
+
+/**
+ * Handles game commands over websockets. Commands arrive as JSON text frames,
+ * or as binary frames from clients that negotiated
+ * {@link BinaryProtocol#SUBPROTOCOL}; replies use the same format.
+ */
+public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsBinaryMessageHandler, WsCloseHandler {
+
+    /**
+     * How many times a command reads the game again after losing a race to
+     * store its change, before giving up
+     */
+    private static final int MAX_ATTEMPTS = 5;
 
     private final ConnectionManager connections = new ConnectionManager();
+    private final GameExecutor games = new GameExecutor();
     private final UserService userService;
     private final GameService gameService;
 
@@ -36,29 +51,56 @@ public class WebSocketHandler implements WsConnectHandler,  WsMessageHandler, Ws
 
     @Override
     public void handleMessage(@NotNull WsMessageContext ctx) {
+        UserGameCommand command;
         try {
-            UserGameCommand command = new Gson().fromJson(ctx.message(), UserGameCommand.class);
-            if (command.getCommandType() == UserGameCommand.CommandType.MAKE_MOVE) {
-                command = new Gson().fromJson(ctx.message(), MakeMoveCommand.class);
-            }
-            switch(command.getCommandType()) {
-                case CONNECT -> handleConnectCommand(ctx, command);
-                case MAKE_MOVE -> handleMakeMoveCommand(ctx, (MakeMoveCommand) command);
-                case LEAVE -> handleLeaveCommand(ctx, command);
-                case RESIGN -> handleResignCommand(ctx, command);
-            }
+            command = Serializer.GSON.fromJson(ctx.message(), UserGameCommand.class);
         } catch(Exception ex) {
             sendError(ctx.session, "Server error: " + ex.getMessage());
+            return;
         }
+        submit(ctx, command);
+    }
 
+    @Override
+    public void handleBinaryMessage(@NotNull WsBinaryMessageContext ctx) {
+        UserGameCommand command;
+        try {
+            command = BinaryProtocol.decodeCommand(ByteBuffer.wrap(ctx.data(), ctx.offset(), ctx.length()));
+        } catch(Exception ex) {
+            sendError(ctx.session, "Server error: " + ex.getMessage());
+            return;
+        }
+        submit(ctx, command);
     }
 
     @Override
     public void handleClose(@NotNull WsCloseContext ctx) {
+        connections.remove(ctx.session);
         System.out.println("Websocket closed");
     }
 
-    private void handleConnectCommand(WsMessageContext ctx, UserGameCommand command) throws Exception {
+    private void submit(WsContext ctx, UserGameCommand command) {
+        // Commands for one game run one at a time, in the order they arrived,
+        // so they never see each other's half-finished changes
+        var gameID = (command.getGameID() == null) ? 0 : command.getGameID();
+        games.submit(gameID, () -> dispatch(ctx, command));
+    }
+
+    private void dispatch(WsContext ctx, UserGameCommand command) {
+        try {
+            switch(command.getCommandType()) {
+                case CONNECT -> handleConnectCommand(ctx, (ConnectCommand) command);
+                case MAKE_MOVE -> handleMakeMoveCommand(ctx, (MakeMoveCommand) command);
+                case LEAVE -> handleLeaveCommand(ctx, command);
+                case RESIGN -> handleResignCommand(ctx, command);
+                case RELOAD -> handleReloadCommand(ctx, command);
+            }
+        } catch(Exception ex) {
+            sendError(ctx.session, "Server error: " + ex.getMessage());
+        }
+    }
+
+    private void handleConnectCommand(WsContext ctx, ConnectCommand command) throws Exception {
         try {
             validateCommand(command);
         } catch(Exception ex) {
@@ -68,9 +110,8 @@ public class WebSocketHandler implements WsConnectHandler,  WsMessageHandler, Ws
         var token = command.getAuthToken();
         var username = userService.getUsernameFromAuth(token);
         var gameID = command.getGameID();
-        connections.add(new ConnectedClient(ctx.session, username, gameID));
-        ServerMessage loadGame = new LoadGameMessage(gameService.getGame(gameID).game());
-        connections.sendToClient(ctx.session, loadGame);
+        connections.add(new ConnectedClient(ctx.session, username, gameID, command.moveUpdates));
+        connections.sendLoadGame(ctx.session, gameID, gameService.getGame(gameID).game());
         var color = gameService.getPlayerColor(username, gameID);
         String notifyText = username + " joined as " + color;
         if (color == null) {
@@ -79,49 +120,52 @@ public class WebSocketHandler implements WsConnectHandler,  WsMessageHandler, Ws
         connections.broadcast(command.getGameID(), ctx.session, new NotificationMessage(notifyText));
     }
 
-    private void handleMakeMoveCommand(WsMessageContext ctx, MakeMoveCommand command) throws Exception {
+    private void handleMakeMoveCommand(WsContext ctx, MakeMoveCommand command) throws Exception {
         var gameID = command.getGameID();
-        var game = gameService.getGame(gameID);
-        if (checkIfGameOver(game)) {
-            sendError(ctx.session, "Error: game is over");
-            return;
-        }
-        if (!validateMove(command, game.game())) {
-            sendError(ctx.session, "Error: illegal move");
-            return;
+        GameData game;
+        ChessGame.GameStatus status;
+        int attempts = 0;
+        while (true) {
+            var read = gameService.getVersionedGame(gameID);
+            if (read == null) {
+                sendError(ctx.session, "Error: game does not exist");
+                return;
+            }
+            game = read.game();
+            if (checkIfGameOver(game)) {
+                sendError(ctx.session, "Error: game is over");
+                return;
+            }
+            if (!validateMove(command, game.game())) {
+                sendError(ctx.session, "Error: illegal move");
+                return;
+            }
+            status = game.game().evaluateStatus();
+            if (gameService.appendMove(gameID, command.move, game, read.version())) {
+                break;
+            }
+            if (++attempts == MAX_ATTEMPTS) {
+                sendError(ctx.session, "Error: game is busy, try again");
+                return;
+            }
         }
-        gameService.updateGame(gameID, game);
         var username = userService.getUsernameFromAuth(command.getAuthToken());
-        ServerMessage loadGameMsg = new LoadGameMessage(game.game());
-        connections.broadcast(gameID, null, loadGameMsg);
+        connections.broadcastMove(gameID, game.game(), command.move);
         String notifyText = username + " moved " + command.move.toString();
         connections.broadcast(gameID, ctx.session, new NotificationMessage(notifyText));
-        var status = game.game().getGameStatus();
-        if (game.game().isInCheck(ChessGame.TeamColor.WHITE) || game.game().isInCheck(ChessGame.TeamColor.BLACK)) {
-            var color = gameService.getPlayerColor(username, gameID);
-            String checkedUser;
-            if (color.equalsIgnoreCase("white")) {
-                checkedUser = gameService.getPlayerFromColor(ChessGame.TeamColor.BLACK, game);
-            }
-            else {
-                checkedUser = gameService.getPlayerFromColor(ChessGame.TeamColor.WHITE, game);
-            }
-            if (!game.game().isInCheckmate(ChessGame.TeamColor.WHITE) && !game.game().isInCheckmate(ChessGame.TeamColor.BLACK)) {
-                notifyText = checkedUser + " is in check";
-                connections.broadcast(gameID, null, new NotificationMessage(notifyText));
-            }
+        if (status == ChessGame.GameStatus.CHECK) {
+            var checkedUser = gameService.getPlayerFromColor(game.game().getTeamTurn(), game);
+            notifyText = checkedUser + " is in check";
+            connections.broadcast(gameID, null, new NotificationMessage(notifyText));
         }
-        if (checkIfGameOver(game)) {
-            status = game.game().getGameStatus();
-            var statusString = (status == ChessGame.GameStatus.STALEMATE) ? "stalemate" :
-                               (status == ChessGame.GameStatus.CHECKMATE) ? "checkmate" :
-                               "resignation";
+        else if (status == ChessGame.GameStatus.CHECKMATE || status == ChessGame.GameStatus.STALEMATE) {
+            var statusString = (status == ChessGame.GameStatus.STALEMATE) ? "stalemate" : "checkmate";
             notifyText = "Game has ended in " + statusString;
             connections.broadcast(gameID, null, new NotificationMessage(notifyText));
         }
     }
 
-    private void handleLeaveCommand(WsMessageContext ctx, UserGameCommand command) throws Exception {
+    private void handleLeaveCommand(WsContext ctx, UserGameCommand command) throws Exception {
         try {
             validateCommand(command);
         } catch(Exception ex) {
@@ -139,7 +183,7 @@ public class WebSocketHandler implements WsConnectHandler,  WsMessageHandler, Ws
         connections.broadcast(gameID, ctx.session, new NotificationMessage(notifyText));
     }
 
-    private void handleResignCommand(WsMessageContext ctx, UserGameCommand command) throws Exception {
+    private void handleResignCommand(WsContext ctx, UserGameCommand command) throws Exception {
         try {
             validateCommand(command);
         } catch(Exception ex) {
@@ -147,22 +191,47 @@ public class WebSocketHandler implements WsConnectHandler,  WsMessageHandler, Ws
             return;
         }
         var gameID = command.getGameID();
-        var game = gameService.getGame(gameID);
         var username = userService.getUsernameFromAuth(command.getAuthToken());
         if (checkIfObserver(username, gameID)) {
             sendError(ctx.session, "Error: you are observing");
             return;
         }
-        if (checkIfGameOver(game)) {
-            sendError(ctx.session, "Error: game is over");
-            return;
+        int attempts = 0;
+        while (true) {
+            var read = gameService.getVersionedGame(gameID);
+            if (read == null) {
+                sendError(ctx.session, "Error: game does not exist");
+                return;
+            }
+            var game = read.game();
+            if (checkIfGameOver(game)) {
+                sendError(ctx.session, "Error: game is over");
+                return;
+            }
+            game.game().setGameStatus(ChessGame.GameStatus.RESIGNED);
+            if (gameService.updateGame(gameID, game, read.version())) {
+                break;
+            }
+            if (++attempts == MAX_ATTEMPTS) {
+                sendError(ctx.session, "Error: game is busy, try again");
+                return;
+            }
         }
-        game.game().setGameStatus(ChessGame.GameStatus.RESIGNED);
-        gameService.updateGame(gameID, game);
         String notifyText = username + " resigned, game over";
         connections.broadcast(gameID, null, new NotificationMessage(notifyText));
     }
 
+    private void handleReloadCommand(WsContext ctx, UserGameCommand command) throws Exception {
+        try {
+            validateCommand(command);
+        } catch(Exception ex) {
+            sendError(ctx.session, ex.getMessage());
+            return;
+        }
+        var gameID = command.getGameID();
+        connections.sendLoadGame(ctx.session, gameID, gameService.getGame(gameID).game());
+    }
+
     private void sendError(Session session, String errorMsg) {
         ServerMessage error = new ErrorMessage(errorMsg);
         connections.sendToClient(session, error);
@@ -201,23 +270,8 @@ public class WebSocketHandler implements WsConnectHandler,  WsMessageHandler, Ws
     }
 
     private boolean checkIfGameOver(GameData game) {
-        var status = game.game().getGameStatus();
-        if (status != ChessGame.GameStatus.PLAYING && status != ChessGame.GameStatus.CHECK) {
-            return true;
-        }
-        var checkmateWhite = game.game().isInCheckmate(ChessGame.TeamColor.WHITE);
-        var checkmateBlack = game.game().isInCheckmate(ChessGame.TeamColor.BLACK);
-        var stalemateWhite = game.game().isInStalemate(ChessGame.TeamColor.WHITE);
-        var stalemateBlack = game.game().isInStalemate(ChessGame.TeamColor.BLACK);
-        if (checkmateWhite || checkmateBlack) {
-            game.game().setGameStatus(ChessGame.GameStatus.CHECKMATE);
-            return true;
-        }
-        else if (stalemateWhite || stalemateBlack) {
-            game.game().setGameStatus(ChessGame.GameStatus.STALEMATE);
-            return true;
-        }
-        return false;
+        var status = game.game().evaluateStatus();
+        return status != ChessGame.GameStatus.PLAYING && status != ChessGame.GameStatus.CHECK;
     }
 
     private boolean checkIfObserver(String username, int gameID) throws Exception {
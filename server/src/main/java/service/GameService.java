@@ -1,11 +1,14 @@
 package service;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import dataaccess.DataAccess;
 import dataaccess.DataAccessException;
 import datamodel.AuthData;
 import datamodel.GameData;
+import datamodel.GameFilter;
 import datamodel.GameResult;
+import datamodel.VersionedGame;
 import exception.AlreadyTakenException;
 import exception.BadRequestException;
 import exception.ServerException;
@@ -16,17 +19,57 @@ import java.util.ArrayList;
 import java.util.Objects;
 
 public class GameService {
+
+    /**
+     * The most games one listing returns
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final DataAccess dataAccess;
 
     public GameService(DataAccess dataAccess) {
         this.dataAccess = dataAccess;
     }
 
+    /**
+     * Lists every game, reading them a page at a time
+     */
     public ArrayList<GameResult> listGames(String authToken) throws Exception {
-        checkAuth(authToken);
+        return listGames(authToken, GameFilter.ALL);
+    }
+
+    /**
+     * Lists every game that passes the filter, reading them a page at a time
+     */
+    public ArrayList<GameResult> listGames(String authToken, GameFilter filter) throws Exception {
+        var games = new ArrayList<GameResult>();
+        int after = 0;
+        while (true) {
+            var page = listGames(authToken, filter, after, MAX_PAGE_SIZE);
+            games.addAll(page);
+            if (page.size() < MAX_PAGE_SIZE) {
+                return games;
+            }
+            after = page.getLast().gameID();
+        }
+    }
+
+    /**
+     * Lists a page of games in gameID order
+     *
+     * @param afterGameID the last gameID of the previous page, or 0 for the
+     *                    first page
+     * @param limit how many games to return, at most MAX_PAGE_SIZE
+     */
+    public ArrayList<GameResult> listGames(String authToken, GameFilter filter, int afterGameID, int limit)
+            throws Exception {
+        if (filter == null || afterGameID < 0 || limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Error: bad request");
+        }
+        var auth = checkAuth(authToken);
         ArrayList<GameResult> list = new ArrayList<>();
         try {
-            list = dataAccess.getGameList();
+            list = dataAccess.getGameList(filter, auth.username(), afterGameID, limit);
         } catch (DataAccessException ex) {
             sqlExceptionHandler(ex);
         }
@@ -52,7 +95,12 @@ public class GameService {
             throw new BadRequestException("Error: bad request");
         }
         var auth = checkAuth(authToken);
-        GameData game = getGame(gameID);
+        GameResult game = null;
+        try {
+            game = dataAccess.getGameInfo(gameID);
+        } catch (DataAccessException ex) {
+            sqlExceptionHandler(ex);
+        }
         if (game == null) {
             throw new BadRequestException("Error: game does not exist");
         }
@@ -63,14 +111,17 @@ public class GameService {
         else if (Objects.equals(color, "BLACK")){
             playerColor = ChessGame.TeamColor.BLACK;
         }
-        if (dataAccess.getPlayer(playerColor, game) != null) {
-            throw new AlreadyTakenException("Error: already taken");
-        }
+        // The seat is checked and taken in one step, so of two players asking
+        // for it at once only one gets it
+        boolean joined = false;
         try {
-            dataAccess.joinGame(playerColor, auth.username(), gameID);
+            joined = dataAccess.joinGame(playerColor, auth.username(), gameID);
         } catch (DataAccessException ex) {
             sqlExceptionHandler(ex);
         }
+        if (!joined) {
+            throw new AlreadyTakenException("Error: already taken");
+        }
     }
 
     public void leaveGame(String color, Integer gameID) throws Exception {
@@ -96,28 +147,59 @@ public class GameService {
         return game;
     }
 
-    public void updateGame(int gameID, GameData game) throws Exception {
+    /**
+     * Reads a game with the version to pass back when storing changes to it
+     */
+    public VersionedGame getVersionedGame(int gameID) throws Exception {
+        VersionedGame game = null;
+        try {
+            game = dataAccess.getVersionedGame(gameID);
+        } catch (DataAccessException ex) {
+            sqlExceptionHandler(ex);
+        }
+        return game;
+    }
+
+    /**
+     * @return whether the game was stored; it is not if something else has
+     * changed it since it was read at the given version
+     */
+    public boolean updateGame(int gameID, GameData game, long version) throws Exception {
         try {
-            dataAccess.updateGame(gameID, game.game());
+            return dataAccess.updateGame(gameID, game.game(), version);
         } catch(DataAccessException ex) {
             sqlExceptionHandler(ex);
         }
+        return false;
+    }
+
+    /**
+     * @return whether the move was stored; it is not if something else has
+     * changed the game since it was read at the given version
+     */
+    public boolean appendMove(int gameID, ChessMove move, GameData game, long version) throws Exception {
+        try {
+            return dataAccess.appendMove(gameID, move, game.game(), version);
+        } catch(DataAccessException ex) {
+            sqlExceptionHandler(ex);
+        }
+        return false;
     }
 
     public String getPlayerColor(String username, int gameID) throws Exception {
-        var game = getGame(gameID);
-        String whiteUser = "";
-        String blackUser = "";
+        GameResult game = null;
         try {
-            whiteUser = dataAccess.getPlayer(ChessGame.TeamColor.WHITE, game);
-            blackUser = dataAccess.getPlayer(ChessGame.TeamColor.BLACK, game);
+            game = dataAccess.getGameInfo(gameID);
         } catch(DataAccessException ex) {
             sqlExceptionHandler(ex);
         }
-        if (username.equals(whiteUser)) {
+        if (game == null) {
+            return null;
+        }
+        if (username.equals(game.whiteUsername())) {
             return "white";
         }
-        else if (username.equals(blackUser)) {
+        else if (username.equals(game.blackUsername())) {
             return "black";
         }
         return null;
@@ -0,0 +1,105 @@
+package dataaccess;
+
+import datamodel.AuthData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthCacheTest {
+
+    private static final AuthData AUTH = new AuthData("user", "token");
+
+    private final Map<String, AuthData> store = new HashMap<>();
+    private int loads;
+
+    private AuthData load(String authToken) {
+        loads++;
+        return store.get(authToken);
+    }
+
+    @BeforeEach
+    void setup() {
+        store.clear();
+        store.put(AUTH.authToken(), AUTH);
+        loads = 0;
+    }
+
+    @Test
+    void cachesFoundToken() throws Exception {
+        var cache = new AuthCache(10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        assertEquals(AUTH, cache.get("token", this::load));
+        assertEquals(AUTH, cache.get("token", this::load));
+        assertEquals(1, loads);
+        var stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(0.5, stats.hitRate());
+    }
+
+    @Test
+    void cachesMissingToken() throws Exception {
+        var cache = new AuthCache(10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        assertNull(cache.get("bad", this::load));
+        assertNull(cache.get("bad", this::load));
+        assertEquals(1, loads);
+        assertEquals(1, cache.stats().negativeHits());
+    }
+
+    @Test
+    void expires() throws Exception {
+        var cache = new AuthCache(10, Duration.ofMillis(1), Duration.ofMillis(1));
+        cache.get("token", this::load);
+        cache.get("bad", this::load);
+        Thread.sleep(5);
+        cache.get("token", this::load);
+        cache.get("bad", this::load);
+        assertEquals(4, loads);
+    }
+
+    @Test
+    void invalidateForgetsToken() throws Exception {
+        var cache = new AuthCache(10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        cache.get("token", this::load);
+        store.remove("token");
+        cache.invalidate("token");
+        assertNull(cache.get("token", this::load));
+    }
+
+    @Test
+    void invalidateDuringLoadIsNotUndone() throws Exception {
+        var cache = new AuthCache(10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        assertEquals(AUTH, cache.get("token", token -> {
+            var auth = load(token);
+            store.remove(token);
+            cache.invalidate(token);
+            return auth;
+        }));
+        assertNull(cache.get("token", this::load));
+    }
+
+    @Test
+    void putOverridesMissingToken() throws Exception {
+        var cache = new AuthCache(10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        var created = new AuthData("other", "new");
+        assertNull(cache.get("new", this::load));
+        cache.put(created);
+        assertEquals(created, cache.get("new", this::load));
+        assertEquals(1, loads);
+    }
+
+    @Test
+    void boundedBySize() throws Exception {
+        var cache = new AuthCache(2, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        cache.get("a", this::load);
+        cache.get("b", this::load);
+        cache.get("c", this::load);
+        assertEquals(2, cache.stats().size());
+        cache.get("a", this::load);
+        assertEquals(4, loads);
+    }
+}
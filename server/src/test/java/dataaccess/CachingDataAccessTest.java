@@ -0,0 +1,312 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import datamodel.AuthData;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingDataAccessTest {
+
+    private static final ChessMove WHITE_KNIGHT_OUT = new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null);
+    private static final ChessMove BLACK_KNIGHT_OUT = new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null);
+
+    private static MySqlDataAccess store;
+    private CachingDataAccess cache;
+
+    @BeforeAll
+    static void init() {
+        store = new MySqlDataAccess();
+    }
+
+    @BeforeEach
+    void setup() throws Exception {
+        store.clear();
+        cache = new CachingDataAccess(store, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        cache.close();
+    }
+
+    @Test
+    void getGameIsCached() throws Exception {
+        var gameID = cache.createGame("test");
+        var first = cache.getGame(gameID);
+        assertSame(first, cache.getGame(gameID));
+    }
+
+    @Test
+    void getGameMissing() throws Exception {
+        assertNull(cache.getGame(100));
+    }
+
+    @Test
+    void movesWaitForFlush() throws Exception {
+        var gameID = cache.createGame("test");
+        var game = cache.getGame(gameID).game();
+        game.makeMove(WHITE_KNIGHT_OUT);
+        cache.appendMove(gameID, WHITE_KNIGHT_OUT, game);
+        game.makeMove(BLACK_KNIGHT_OUT);
+        cache.appendMove(gameID, BLACK_KNIGHT_OUT, game);
+
+        assertEquals(game, cache.getGame(gameID).game());
+        assertEquals(new ChessGame(), store.getGame(gameID).game());
+
+        cache.flush();
+        assertEquals(game, store.getGame(gameID).game());
+        assertEquals(List.of(WHITE_KNIGHT_OUT, BLACK_KNIGHT_OUT), store.getMoves(gameID));
+    }
+
+    @Test
+    void laterChangesDoNotLeakIntoPendingWrite() throws Exception {
+        var gameID = cache.createGame("test");
+        var game = cache.getGame(gameID).game();
+        game.makeMove(WHITE_KNIGHT_OUT);
+        cache.appendMove(gameID, WHITE_KNIGHT_OUT, game);
+        var afterFirstMove = store.getGame(gameID).game();
+        afterFirstMove.makeMove(WHITE_KNIGHT_OUT);
+
+        game.makeMove(BLACK_KNIGHT_OUT);
+        cache.flush();
+        assertEquals(afterFirstMove, store.getGame(gameID).game());
+    }
+
+    @Test
+    void flushesInBackground() throws Exception {
+        cache.close();
+        cache = new CachingDataAccess(store, Duration.ofMillis(20));
+        var gameID = cache.createGame("test");
+        var game = cache.getGame(gameID).game();
+        game.makeMove(WHITE_KNIGHT_OUT);
+        cache.appendMove(gameID, WHITE_KNIGHT_OUT, game);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!game.equals(store.getGame(gameID).game()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(game, store.getGame(gameID).game());
+    }
+
+    @Test
+    void endedGameIsWrittenRightAway() throws Exception {
+        var gameID = cache.createGame("test");
+        var game = cache.getGame(gameID).game();
+        game.setGameStatus(ChessGame.GameStatus.RESIGNED);
+        cache.updateGame(gameID, game);
+        assertEquals(ChessGame.GameStatus.RESIGNED, store.getGame(gameID).game().getGameStatus());
+    }
+
+    @Test
+    void checkmateIsWrittenRightAway() throws Exception {
+        var gameID = cache.createGame("test");
+        var game = cache.getGame(gameID).game();
+        var moves = List.of(
+                new ChessMove(new ChessPosition(2, 6), new ChessPosition(3, 6), null),
+                new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null),
+                new ChessMove(new ChessPosition(2, 7), new ChessPosition(4, 7), null),
+                new ChessMove(new ChessPosition(8, 4), new ChessPosition(4, 8), null));
+        for (var move : moves) {
+            game.makeMove(move);
+            game.evaluateStatus();
+            cache.appendMove(gameID, move, game);
+        }
+        assertEquals(ChessGame.GameStatus.CHECKMATE, store.getGame(gameID).game().getGameStatus());
+        assertEquals(moves, store.getMoves(gameID));
+    }
+
+    @Test
+    void seatsWriteThrough() throws Exception {
+        var gameID = cache.createGame("test");
+        cache.getGame(gameID);
+        cache.joinGame(ChessGame.TeamColor.WHITE, "white", gameID);
+        assertEquals("white", store.getGameInfo(gameID).whiteUsername());
+        assertEquals("white", cache.getGame(gameID).whiteUsername());
+        assertEquals("white", cache.getGameInfo(gameID).whiteUsername());
+        cache.leaveGame(ChessGame.TeamColor.WHITE, gameID);
+        assertNull(cache.getGame(gameID).whiteUsername());
+    }
+
+    @Test
+    void takenSeatIsNotOverwritten() throws Exception {
+        var gameID = cache.createGame("test");
+        cache.getGame(gameID);
+        assertTrue(cache.joinGame(ChessGame.TeamColor.BLACK, "black", gameID));
+        assertFalse(cache.joinGame(ChessGame.TeamColor.BLACK, "other", gameID));
+        assertEquals("black", cache.getGame(gameID).blackUsername());
+    }
+
+    @Test
+    void versionedWritesAreCheckedInMemory() throws Exception {
+        var gameID = cache.createGame("test");
+        var read = cache.getVersionedGame(gameID);
+        var game = read.game().game();
+        game.makeMove(WHITE_KNIGHT_OUT);
+        assertNotEquals(game, cache.getGame(gameID).game());
+
+        assertTrue(cache.appendMove(gameID, WHITE_KNIGHT_OUT, game, read.version()));
+        assertSame(game, cache.getGame(gameID).game());
+        assertEquals(new ChessGame(), store.getGame(gameID).game());
+        assertFalse(cache.appendMove(gameID, BLACK_KNIGHT_OUT, game, read.version()));
+        assertFalse(cache.updateGame(gameID, game, read.version()));
+
+        var next = cache.getVersionedGame(gameID);
+        assertEquals(read.version() + 1, next.version());
+        next.game().game().makeMove(BLACK_KNIGHT_OUT);
+        assertTrue(cache.appendMove(gameID, BLACK_KNIGHT_OUT, next.game().game(), next.version()));
+
+        cache.flush();
+        assertEquals(next.game().game(), store.getGame(gameID).game());
+        assertEquals(List.of(WHITE_KNIGHT_OUT, BLACK_KNIGHT_OUT), store.getMoves(gameID));
+    }
+
+    @Test
+    void storeIsNeverBehindAVersionHandedOut() throws Exception {
+        var gameID = cache.createGame("test");
+        var game = cache.getGame(gameID).game();
+        game.makeMove(WHITE_KNIGHT_OUT);
+        cache.appendMove(gameID, WHITE_KNIGHT_OUT, game);
+        game.makeMove(BLACK_KNIGHT_OUT);
+        cache.appendMove(gameID, BLACK_KNIGHT_OUT, game);
+        cache.flush();
+
+        var read = cache.getVersionedGame(gameID);
+        assertTrue(store.getGameVersion(gameID) >= read.version());
+        var pawnOut = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        read.game().game().makeMove(pawnOut);
+        assertTrue(cache.appendMove(gameID, pawnOut, read.game().game(), read.version()));
+        cache.close();
+
+        cache = new CachingDataAccess(store, Duration.ofHours(1));
+        var reloaded = cache.getVersionedGame(gameID);
+        assertTrue(reloaded.version() > read.version());
+        assertEquals(read.game().game(), reloaded.game().game());
+        assertEquals(List.of(WHITE_KNIGHT_OUT, BLACK_KNIGHT_OUT, pawnOut), cache.getMoves(gameID));
+    }
+
+    @Test
+    void movesAreWrittenInBatches() throws Exception {
+        var writes = new AtomicInteger();
+        var counting = new MemoryDataAccess() {
+            @Override
+            public void writeGame(int gameID, List<ChessMove> moves, ChessGame game, long minVersion) {
+                writes.incrementAndGet();
+                super.writeGame(gameID, moves, game, minVersion);
+            }
+        };
+        try (var batching = new CachingDataAccess(counting, Duration.ofHours(1))) {
+            var gameID = batching.createGame("test");
+            var moves = List.of(WHITE_KNIGHT_OUT, BLACK_KNIGHT_OUT,
+                    new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null),
+                    new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null));
+            for (var move : moves) {
+                var read = batching.getVersionedGame(gameID);
+                read.game().game().makeMove(move);
+                assertTrue(batching.appendMove(gameID, move, read.game().game(), read.version()));
+            }
+            batching.flush();
+            assertTrue(writes.get() < moves.size(), writes.get() + " writes for " + moves.size() + " moves");
+            assertEquals(moves, counting.getMoves(gameID));
+        }
+    }
+
+    @Test
+    void twoServersCannotBothMoveFromTheSameVersion() throws Exception {
+        cache.close();
+        cache = new CachingDataAccess(store, Duration.ofHours(1), CachingDataAccess.Mode.SHARED);
+        try (var other = new CachingDataAccess(store, Duration.ofHours(1), CachingDataAccess.Mode.SHARED)) {
+            var gameID = cache.createGame("test");
+            var mine = cache.getVersionedGame(gameID);
+            var theirs = other.getVersionedGame(gameID);
+            assertEquals(mine.version(), theirs.version());
+
+            var myGame = mine.game().game();
+            myGame.makeMove(WHITE_KNIGHT_OUT);
+            var theirGame = theirs.game().game();
+            var pawnOut = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+            theirGame.makeMove(pawnOut);
+
+            assertTrue(cache.appendMove(gameID, WHITE_KNIGHT_OUT, myGame, mine.version()));
+            assertFalse(other.appendMove(gameID, pawnOut, theirGame, theirs.version()));
+            assertEquals(List.of(WHITE_KNIGHT_OUT), store.getMoves(gameID));
+
+            var reread = other.getVersionedGame(gameID);
+            assertEquals(myGame, reread.game().game());
+            assertEquals(mine.version() + 1, reread.version());
+        }
+    }
+
+    @Test
+    void sharedServersSeeEachOthersChanges() throws Exception {
+        cache.close();
+        cache = new CachingDataAccess(store, Duration.ofHours(1), CachingDataAccess.Mode.SHARED);
+        try (var other = new CachingDataAccess(store, Duration.ofHours(1), CachingDataAccess.Mode.SHARED)) {
+            var gameID = cache.createGame("test");
+            var cached = other.getGame(gameID);
+            assertNull(cached.whiteUsername());
+
+            assertTrue(cache.joinGame(ChessGame.TeamColor.WHITE, "white", gameID));
+            assertEquals("white", other.getGame(gameID).whiteUsername());
+            assertEquals("white", other.getPlayer(ChessGame.TeamColor.WHITE, cached));
+            assertEquals("white", other.getGameInfo(gameID).whiteUsername());
+            assertFalse(other.joinGame(ChessGame.TeamColor.WHITE, "other", gameID));
+
+            var read = cache.getVersionedGame(gameID);
+            read.game().game().makeMove(WHITE_KNIGHT_OUT);
+            assertTrue(cache.appendMove(gameID, WHITE_KNIGHT_OUT, read.game().game(), read.version()));
+            assertEquals(read.game().game(), other.getGame(gameID).game());
+            assertEquals(store.getGameVersion(gameID), other.getVersionedGame(gameID).version());
+        }
+    }
+
+    @Test
+    void closeFlushes() throws Exception {
+        var gameID = cache.createGame("test");
+        var game = cache.getGame(gameID).game();
+        game.makeMove(WHITE_KNIGHT_OUT);
+        cache.appendMove(gameID, WHITE_KNIGHT_OUT, game);
+        cache.close();
+        assertEquals(game, store.getGame(gameID).game());
+    }
+
+    @Test
+    void clearDropsPendingWrites() throws Exception {
+        var gameID = cache.createGame("test");
+        var game = cache.getGame(gameID).game();
+        game.makeMove(WHITE_KNIGHT_OUT);
+        cache.appendMove(gameID, WHITE_KNIGHT_OUT, game);
+        cache.clear();
+        cache.flush();
+        assertNull(store.getGame(gameID));
+        assertTrue(store.getMoves(gameID).isEmpty());
+    }
+
+    @Test
+    void deleteAuthIsNotServedFromCache() throws Exception {
+        var auth = new AuthData("user", "token");
+        cache.createAuth(auth);
+        assertEquals(auth, cache.getAuth("token"));
+        cache.deleteAuth("token");
+        assertNull(cache.getAuth("token"));
+        assertNull(store.getAuth("token"));
+    }
+
+    @Test
+    void getAuthIsCached() throws Exception {
+        store.createAuth(new AuthData("user", "token"));
+        cache.getAuth("token");
+        cache.getAuth("token");
+        cache.getAuth("bad");
+        cache.getAuth("bad");
+        var stats = cache.authStats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.negativeHits());
+        assertEquals(2, stats.misses());
+    }
+}
@@ -0,0 +1,126 @@
+package dataaccess;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+
+    private ConnectionPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private ConnectionPool newPool(int size, Duration maxLifetime, Duration maxWait, Duration validateAfter)
+            throws DataAccessException {
+        DatabaseManager.createDatabase();
+        pool = new ConnectionPool(DatabaseManager::openConnection, size, maxLifetime, maxWait, validateAfter);
+        return pool;
+    }
+
+    private ConnectionPool newPool(int size) throws DataAccessException {
+        return newPool(size, Duration.ofMinutes(30), Duration.ofMillis(200), Duration.ofSeconds(30));
+    }
+
+    @Test
+    void reusesReturnedConnection() throws Exception {
+        newPool(2);
+        try (var conn = pool.getConnection(); var ps = conn.prepareStatement("SELECT 1")) {
+            assertTrue(ps.executeQuery().next());
+        }
+        try (var conn = pool.getConnection(); var ps = conn.prepareStatement("SELECT 1")) {
+            assertTrue(ps.executeQuery().next());
+        }
+        var stats = pool.stats();
+        assertEquals(2, stats.borrows());
+        assertEquals(1, stats.created());
+        assertEquals(0, stats.active());
+        assertEquals(1, stats.idle());
+    }
+
+    @Test
+    void timesOutWhenExhausted() throws Exception {
+        newPool(1);
+        try (var held = pool.getConnection()) {
+            assertFalse(held.isClosed());
+            assertThrows(SQLTimeoutException.class, () -> pool.getConnection());
+        }
+        assertEquals(1, pool.stats().timeouts());
+        assertTrue(pool.stats().maxWaitMillis() >= 150);
+    }
+
+    @Test
+    void waitsForReturnedConnection() throws Exception {
+        newPool(1, Duration.ofMinutes(30), Duration.ofSeconds(5), Duration.ofSeconds(30));
+        var held = pool.getConnection();
+        try (var executor = Executors.newSingleThreadScheduledExecutor()) {
+            executor.schedule(() -> {
+                held.close();
+                return null;
+            }, 100, TimeUnit.MILLISECONDS);
+            try (var conn = pool.getConnection()) {
+                assertFalse(conn.isClosed());
+            }
+        }
+        var stats = pool.stats();
+        assertEquals(1, stats.created());
+        assertEquals(0, stats.timeouts());
+        assertTrue(stats.maxWaitMillis() >= 50);
+    }
+
+    @Test
+    void closedLeaseCannotBeUsed() throws Exception {
+        newPool(1);
+        Connection conn = pool.getConnection();
+        conn.close();
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+        conn.close();
+        assertEquals(0, pool.stats().active());
+    }
+
+    @Test
+    void replacesExpiredConnection() throws Exception {
+        newPool(1, Duration.ofMillis(1), Duration.ofMillis(200), Duration.ofSeconds(30));
+        pool.getConnection().close();
+        Thread.sleep(5);
+        pool.getConnection().close();
+        var stats = pool.stats();
+        assertEquals(2, stats.created());
+        assertTrue(stats.retired() >= 1);
+    }
+
+    @Test
+    void healthCheckReplacesBrokenConnection() throws Exception {
+        newPool(1, Duration.ofMinutes(30), Duration.ofMillis(200), Duration.ZERO);
+        Connection physical;
+        try (var conn = pool.getConnection()) {
+            physical = conn.unwrap(Connection.class);
+        }
+        physical.close();
+        try (var conn = pool.getConnection(); var ps = conn.prepareStatement("SELECT 1")) {
+            assertTrue(ps.executeQuery().next());
+        }
+        var stats = pool.stats();
+        assertEquals(2, stats.created());
+        assertEquals(1, stats.retired());
+    }
+
+    @Test
+    void rejectsEmptyPool() {
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionPool(DatabaseManager::openConnection, 0,
+                Duration.ofMinutes(1), Duration.ofSeconds(1), Duration.ofSeconds(1)));
+    }
+}
@@ -3,10 +3,18 @@ package dataaccess;
 import chess.ChessGame;
 import chess.ChessMove;
 import chess.ChessPosition;
+import com.google.gson.Gson;
 import datamodel.AuthData;
 import datamodel.GameData;
+import datamodel.GameFilter;
+import datamodel.GameResult;
 import datamodel.UserData;
 import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class DataAccessTest {
@@ -175,6 +183,133 @@ public class DataAccessTest {
         assertNotEquals(check.game(), game.game());
     }
 
+    @Test
+    void getLegacyJsonGame() throws Exception {
+        var game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        try (var conn = DatabaseManager.getConnection();
+             var ps = conn.prepareStatement("INSERT INTO games (gameName, game) VALUES (?, ?)")) {
+            ps.setString(1, "legacy");
+            ps.setString(2, new Gson().toJson(game));
+            ps.executeUpdate();
+        }
+        var check = da.getGame(1);
+        assertEquals(game, check.game());
+        assertEquals(ChessGame.TeamColor.BLACK, check.game().getTeamTurn());
+    }
+
+    @Test
+    void updateLegacyJsonGame() throws Exception {
+        try (var conn = DatabaseManager.getConnection();
+             var ps = conn.prepareStatement("INSERT INTO games (gameName, game) VALUES (?, ?)")) {
+            ps.setString(1, "legacy");
+            ps.setString(2, new Gson().toJson(new ChessGame()));
+            ps.executeUpdate();
+        }
+        var game = da.getGame(1);
+        game.game().makeMove(new ChessMove(new ChessPosition(2, 1), new ChessPosition(3, 1), null));
+        da.updateGame(1, game.game());
+        assertEquals(game.game(), da.getGame(1).game());
+    }
+
+    @Test
+    void appendMove() throws Exception {
+        var gameID = da.createGame("test1");
+        var game = da.getGame(gameID).game();
+        var move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(move);
+        da.appendMove(gameID, move, game);
+        var check = da.getGame(gameID).game();
+        assertEquals(game, check);
+        assertEquals(1, check.getPly());
+        assertEquals(List.of(move), da.getMoves(gameID));
+    }
+
+    @Test
+    void appendMovesPastSnapshot() throws Exception {
+        var gameID = da.createGame("test1");
+        var game = da.getGame(gameID).game();
+        var moves = new ArrayList<ChessMove>();
+        for (int i = 0; i < MySqlDataAccess.SNAPSHOT_INTERVAL + 3; i++) {
+            ChessMove move = switch (i % 4) {
+                case 0 -> new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null);
+                case 1 -> new ChessMove(new ChessPosition(8, 2), new ChessPosition(6, 3), null);
+                case 2 -> new ChessMove(new ChessPosition(3, 3), new ChessPosition(1, 2), null);
+                default -> new ChessMove(new ChessPosition(6, 3), new ChessPosition(8, 2), null);
+            };
+            game.makeMove(move);
+            da.appendMove(gameID, move, game);
+            moves.add(move);
+        }
+        var check = da.getGame(gameID).game();
+        assertEquals(game, check);
+        assertEquals(game.getPly(), check.getPly());
+        assertEquals(moves, da.getMoves(gameID));
+    }
+
+    @Test
+    void appendMoveTwice() throws Exception {
+        var gameID = da.createGame("test1");
+        var game = da.getGame(gameID).game();
+        var move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(move);
+        da.appendMove(gameID, move, game);
+        assertThrows(DataAccessException.class, () -> da.appendMove(gameID, move, game));
+    }
+
+    @Test
+    void appendMoveEndsGame() throws Exception {
+        var gameID = da.createGame("test1");
+        var game = da.getGame(gameID).game();
+        var moves = List.of(
+                new ChessMove(new ChessPosition(2, 6), new ChessPosition(3, 6), null),
+                new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null),
+                new ChessMove(new ChessPosition(2, 7), new ChessPosition(4, 7), null),
+                new ChessMove(new ChessPosition(8, 4), new ChessPosition(4, 8), null));
+        for (var move : moves) {
+            game.makeMove(move);
+            da.appendMove(gameID, move, game);
+        }
+        assertEquals(ChessGame.GameStatus.CHECKMATE, da.getGame(gameID).game().getGameStatus());
+    }
+
+    @Test
+    void getMovesEmpty() throws Exception {
+        var gameID = da.createGame("test1");
+        assertTrue(da.getMoves(gameID).isEmpty());
+    }
+
+    @Test
+    void getGameInfo() throws Exception {
+        var gameID = da.createGame("test1");
+        da.joinGame(ChessGame.TeamColor.BLACK, "test", gameID);
+        assertEquals(new GameResult(gameID, null, "test", "test1"), da.getGameInfo(gameID));
+    }
+
+    @Test
+    void getGameInfoBadID() throws Exception {
+        da.createGame("test1");
+        assertNull(da.getGameInfo(100));
+    }
+
+    @Test
+    void updateGames() throws Exception {
+        var first = da.createGame("test1");
+        var second = da.createGame("test2");
+        var firstGame = da.getGame(first).game();
+        var secondGame = da.getGame(second).game();
+        firstGame.makeMove(new ChessMove(new ChessPosition(2, 1), new ChessPosition(3, 1), null));
+        secondGame.makeMove(new ChessMove(new ChessPosition(2, 8), new ChessPosition(4, 8), null));
+        da.updateGames(Map.of(first, firstGame, second, secondGame));
+        assertEquals(firstGame, da.getGame(first).game());
+        assertEquals(secondGame, da.getGame(second).game());
+    }
+
+    @Test
+    void updateGamesEmpty() {
+        assertDoesNotThrow(() -> da.updateGames(Map.of()));
+    }
+
     @Test
     void joinGame() throws Exception {
         var gameID = da.createGame("test1");
@@ -191,4 +326,89 @@ public class DataAccessTest {
         var game = da.getGame(gameID);
         assertNull(game.whiteUsername());
     }
+
+    @Test
+    void joinTakenSeat() throws Exception {
+        var gameID = da.createGame("test1");
+        assertTrue(da.joinGame(ChessGame.TeamColor.WHITE, "test", gameID));
+        assertFalse(da.joinGame(ChessGame.TeamColor.WHITE, "test", gameID));
+        assertFalse(da.joinGame(ChessGame.TeamColor.WHITE, "other", gameID));
+        assertEquals("test", da.getGame(gameID).whiteUsername());
+        da.leaveGame(ChessGame.TeamColor.WHITE, gameID);
+        assertTrue(da.joinGame(ChessGame.TeamColor.WHITE, "other", gameID));
+    }
+
+    @Test
+    void versionGoesUpOnEveryWrite() throws Exception {
+        var gameID = da.createGame("test1");
+        long version = da.getVersionedGame(gameID).version();
+        da.joinGame(ChessGame.TeamColor.WHITE, "test", gameID);
+        assertEquals(version + 1, da.getVersionedGame(gameID).version());
+        var game = da.getGame(gameID).game();
+        var move = new ChessMove(new ChessPosition(2, 1), new ChessPosition(3, 1), null);
+        game.makeMove(move);
+        da.appendMove(gameID, move, game);
+        assertEquals(version + 2, da.getVersionedGame(gameID).version());
+        da.updateGame(gameID, game);
+        assertEquals(version + 3, da.getVersionedGame(gameID).version());
+        assertNull(da.getVersionedGame(100));
+    }
+
+    @Test
+    void staleVersionedWritesAreRejected() throws Exception {
+        var gameID = da.createGame("test1");
+        var read = da.getVersionedGame(gameID);
+        var game = read.game().game();
+        var move = new ChessMove(new ChessPosition(2, 1), new ChessPosition(3, 1), null);
+        game.makeMove(move);
+        assertTrue(da.appendMove(gameID, move, game, read.version()));
+
+        assertFalse(da.appendMove(gameID, move, game, read.version()));
+        assertEquals(List.of(move), da.getMoves(gameID));
+        game.setGameStatus(ChessGame.GameStatus.RESIGNED);
+        assertFalse(da.updateGame(gameID, game, read.version()));
+        assertEquals(ChessGame.GameStatus.PLAYING, da.getGame(gameID).game().getGameStatus());
+
+        assertTrue(da.updateGame(gameID, game, da.getVersionedGame(gameID).version()));
+        assertEquals(ChessGame.GameStatus.RESIGNED, da.getGame(gameID).game().getGameStatus());
+    }
+
+    @Test
+    void getGameListPages() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            da.createGame("game" + i);
+        }
+        var first = da.getGameList(GameFilter.ALL, "test", 0, 2);
+        assertEquals(List.of(1, 2), first.stream().map(GameResult::gameID).toList());
+        var second = da.getGameList(GameFilter.ALL, "test", first.getLast().gameID(), 2);
+        assertEquals(List.of(3, 4), second.stream().map(GameResult::gameID).toList());
+        var last = da.getGameList(GameFilter.ALL, "test", second.getLast().gameID(), 2);
+        assertEquals(List.of(5), last.stream().map(GameResult::gameID).toList());
+    }
+
+    @Test
+    void getGameListFilters() throws Exception {
+        var open = da.createGame("open");
+        var mine = da.createGame("mine");
+        var full = da.createGame("full");
+        var ended = da.createGame("ended");
+        da.joinGame(ChessGame.TeamColor.WHITE, "test", mine);
+        da.joinGame(ChessGame.TeamColor.WHITE, "a", full);
+        da.joinGame(ChessGame.TeamColor.BLACK, "test", full);
+        da.joinGame(ChessGame.TeamColor.WHITE, "a", ended);
+        da.joinGame(ChessGame.TeamColor.BLACK, "b", ended);
+        var game = da.getGame(ended).game();
+        game.setGameStatus(ChessGame.GameStatus.RESIGNED);
+        da.updateGame(ended, game);
+
+        assertEquals(List.of(open, mine), ids(new GameFilter(true, false, false)));
+        assertEquals(List.of(mine, full), ids(new GameFilter(false, true, false)));
+        assertEquals(List.of(full), ids(new GameFilter(false, false, true)));
+        assertEquals(List.of(full), ids(new GameFilter(false, true, true)));
+        assertEquals(List.of(open, mine, full, ended), ids(GameFilter.ALL));
+    }
+
+    private static List<Integer> ids(GameFilter filter) throws DataAccessException {
+        return da.getGameList(filter, "test", 0, 10).stream().map(GameResult::gameID).toList();
+    }
 }
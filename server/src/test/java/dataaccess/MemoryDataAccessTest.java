@@ -0,0 +1,220 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import datamodel.GameFilter;
+import datamodel.GameResult;
+import datamodel.UserData;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryDataAccessTest {
+
+    private static final ChessMove WHITE_KNIGHT_OUT = new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null);
+    private static final int THREADS = 16;
+
+    private MemoryDataAccess da;
+
+    @BeforeEach
+    void setup() {
+        da = new MemoryDataAccess();
+    }
+
+    /**
+     * Runs the task on many threads at once and returns what each returned
+     */
+    private static <T> List<T> race(Callable<T> task) throws Exception {
+        var start = new CountDownLatch(1);
+        try (var executor = Executors.newFixedThreadPool(THREADS)) {
+            var futures = new ArrayList<Future<T>>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            var results = new ArrayList<T>();
+            for (var future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        }
+    }
+
+    @Test
+    void gameIDsAreUniqueUnderContention() throws Exception {
+        var ids = race(() -> {
+            var created = new ArrayList<Integer>();
+            for (int i = 0; i < 100; i++) {
+                created.add(da.createGame("game"));
+            }
+            return created;
+        });
+        var unique = new HashSet<Integer>();
+        ids.forEach(unique::addAll);
+        assertEquals(THREADS * 100, unique.size());
+        assertEquals(THREADS * 100, da.getGameList().size());
+    }
+
+    @Test
+    void onlyOnePlayerGetsASeat() throws Exception {
+        var gameID = da.createGame("game");
+        var winners = race(() -> da.joinGame(ChessGame.TeamColor.WHITE, Thread.currentThread().getName(), gameID));
+        assertEquals(1, Collections.frequency(winners, true));
+        assertNotNull(da.getGame(gameID).whiteUsername());
+        assertNull(da.getGame(gameID).blackUsername());
+    }
+
+    @Test
+    void joinTakenSeatFails() throws Exception {
+        var gameID = da.createGame("game");
+        assertTrue(da.joinGame(ChessGame.TeamColor.BLACK, "first", gameID));
+        assertFalse(da.joinGame(ChessGame.TeamColor.BLACK, "first", gameID));
+        assertFalse(da.joinGame(ChessGame.TeamColor.BLACK, "second", gameID));
+        assertFalse(da.joinGame(ChessGame.TeamColor.BLACK, "second", 100));
+
+        da.leaveGame(ChessGame.TeamColor.BLACK, gameID);
+        assertTrue(da.joinGame(ChessGame.TeamColor.BLACK, "second", gameID));
+        assertEquals("second", da.getGame(gameID).blackUsername());
+    }
+
+    @Test
+    void usernameIsRegisteredOnce() throws Exception {
+        var registered = race(() -> {
+            try {
+                da.createUser(new UserData("name", "password", "email"));
+                return true;
+            } catch (DataAccessException ex) {
+                return false;
+            }
+        });
+        assertEquals(1, Collections.frequency(registered, true));
+    }
+
+    @Test
+    void readsAreCopies() throws Exception {
+        var gameID = da.createGame("game");
+        da.getGame(gameID).game().makeMove(WHITE_KNIGHT_OUT);
+        assertEquals(new ChessGame(), da.getGame(gameID).game());
+
+        var game = da.getGame(gameID);
+        game.game().makeMove(WHITE_KNIGHT_OUT);
+        da.appendMove(gameID, WHITE_KNIGHT_OUT, game.game());
+        assertEquals(game.game(), da.getGame(gameID).game());
+        assertEquals(List.of(WHITE_KNIGHT_OUT), da.getMoves(gameID));
+    }
+
+    @Test
+    void staleVersionIsRejected() throws Exception {
+        var gameID = da.createGame("game");
+        var read = da.getVersionedGame(gameID);
+        var game = read.game().game();
+        game.makeMove(WHITE_KNIGHT_OUT);
+        assertTrue(da.appendMove(gameID, WHITE_KNIGHT_OUT, game, read.version()));
+        assertEquals(read.version() + 1, da.getVersionedGame(gameID).version());
+
+        assertFalse(da.appendMove(gameID, WHITE_KNIGHT_OUT, game, read.version()));
+        assertEquals(List.of(WHITE_KNIGHT_OUT), da.getMoves(gameID));
+        game.setGameStatus(ChessGame.GameStatus.RESIGNED);
+        assertFalse(da.updateGame(gameID, game, read.version()));
+        assertEquals(ChessGame.GameStatus.PLAYING, da.getGame(gameID).game().getGameStatus());
+        assertNull(da.getVersionedGame(100));
+    }
+
+    @Test
+    void versionedUpdatesNeverLoseWrites() throws Exception {
+        var gameID = da.createGame("game");
+        race(() -> {
+            for (int i = 0; i < 50; i++) {
+                boolean stored;
+                do {
+                    var read = da.getVersionedGame(gameID);
+                    var game = read.game().game();
+                    game.setPly(game.getPly() + 1);
+                    stored = da.updateGame(gameID, game, read.version());
+                } while (!stored);
+            }
+            return null;
+        });
+        assertEquals(THREADS * 50, da.getGame(gameID).game().getPly());
+        assertEquals(THREADS * 50, da.getVersionedGame(gameID).version());
+    }
+
+    @Test
+    void versionsStartAtZero() {
+        var gameID = da.createGame("game");
+        assertEquals(0, da.getVersionedGame(gameID).version());
+    }
+
+    @Test
+    void versionAndMovesChangeTogether() throws Exception {
+        var gameID = da.createGame("game");
+        var game = new ChessGame();
+        var writer = Executors.newSingleThreadExecutor();
+        try (writer) {
+            var done = writer.submit(() -> {
+                for (int version = 0; version < 2000; version++) {
+                    assertTrue(da.appendMove(gameID, WHITE_KNIGHT_OUT, game, version));
+                }
+                return null;
+            });
+            while (!done.isDone()) {
+                long version = da.getVersionedGame(gameID).version();
+                assertTrue(da.getMoves(gameID).size() >= version);
+            }
+            done.get();
+        }
+        assertEquals(2000, da.getMoves(gameID).size());
+    }
+
+    @Test
+    void getGameListPages() {
+        for (int i = 0; i < 5; i++) {
+            da.createGame("game" + i);
+        }
+        var first = da.getGameList(GameFilter.ALL, "test", 0, 2);
+        assertEquals(List.of(1, 2), first.stream().map(GameResult::gameID).toList());
+        var second = da.getGameList(GameFilter.ALL, "test", first.getLast().gameID(), 2);
+        assertEquals(List.of(3, 4), second.stream().map(GameResult::gameID).toList());
+        var last = da.getGameList(GameFilter.ALL, "test", second.getLast().gameID(), 2);
+        assertEquals(List.of(5), last.stream().map(GameResult::gameID).toList());
+    }
+
+    @Test
+    void getGameListFilters() throws Exception {
+        var open = da.createGame("open");
+        var mine = da.createGame("mine");
+        var full = da.createGame("full");
+        var ended = da.createGame("ended");
+        da.joinGame(ChessGame.TeamColor.WHITE, "test", mine);
+        da.joinGame(ChessGame.TeamColor.WHITE, "a", full);
+        da.joinGame(ChessGame.TeamColor.BLACK, "test", full);
+        da.joinGame(ChessGame.TeamColor.WHITE, "a", ended);
+        da.joinGame(ChessGame.TeamColor.BLACK, "b", ended);
+        var game = da.getGame(ended).game();
+        game.setGameStatus(ChessGame.GameStatus.RESIGNED);
+        da.updateGame(ended, game);
+
+        assertEquals(List.of(open, mine), ids(new GameFilter(true, false, false)));
+        assertEquals(List.of(mine, full), ids(new GameFilter(false, true, false)));
+        assertEquals(List.of(full), ids(new GameFilter(false, false, true)));
+        assertEquals(List.of(full), ids(new GameFilter(false, true, true)));
+        assertEquals(List.of(open, mine, full, ended), ids(GameFilter.ALL));
+    }
+
+    private List<Integer> ids(GameFilter filter) {
+        return da.getGameList(filter, "test", 0, 10).stream().map(GameResult::gameID).toList();
+    }
+}
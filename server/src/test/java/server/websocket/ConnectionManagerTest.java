@@ -0,0 +1,292 @@
+package server.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.GameCodec;
+import com.google.gson.Gson;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.UpgradeResponse;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utilities.BinaryProtocol;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionManagerTest {
+
+    /**
+     * A stand-in session that records what is sent to it. A stalled session
+     * never finishes a send, like a client that has stopped reading.
+     */
+    private static class FakeSession {
+        private final List<String> sent = new ArrayList<>();
+        private final List<ByteBuffer> sentBytes = new ArrayList<>();
+        private final List<WriteCallback> unfinished = new ArrayList<>();
+        private boolean open = true;
+        private boolean stalled;
+        private int closeCode;
+        private final Session session;
+
+        FakeSession() {
+            this(null);
+        }
+
+        /**
+         * @param subprotocol the subprotocol the session negotiated, if any
+         */
+        FakeSession(String subprotocol) {
+            var upgrade = (UpgradeResponse) Proxy.newProxyInstance(UpgradeResponse.class.getClassLoader(),
+                    new Class<?>[]{UpgradeResponse.class}, (proxy, method, args) ->
+                            method.getName().equals("getAcceptedSubProtocol") ? subprotocol : null);
+            var remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("sendString") || method.getName().equals("sendBytes")) {
+                            if (args[0] instanceof ByteBuffer bytes) {
+                                sentBytes.add(bytes);
+                            }
+                            else {
+                                sent.add((String) args[0]);
+                            }
+                            var callback = (WriteCallback) args[1];
+                            if (stalled) {
+                                unfinished.add(callback);
+                            }
+                            else {
+                                callback.writeSuccess();
+                            }
+                        }
+                        return null;
+                    });
+            session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+                    new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "isOpen" -> open;
+                        case "close" -> {
+                            closeCode = (int) args[0];
+                            open = false;
+                            yield null;
+                        }
+                        case "getRemote" -> remote;
+                        case "getUpgradeResponse" -> upgrade;
+                        case "equals" -> proxy == args[0];
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "toString" -> "FakeSession";
+                        default -> null;
+                    });
+        }
+    }
+
+    private ConnectionManager connections;
+
+    @BeforeEach
+    void setup() {
+        connections = new ConnectionManager();
+    }
+
+    @Test
+    void broadcastOnlyReachesGame() throws Exception {
+        var inGame = new FakeSession();
+        var otherGame = new FakeSession();
+        connections.add(new ConnectedClient(inGame.session, "a", 1));
+        connections.add(new ConnectedClient(otherGame.session, "b", 2));
+        connections.broadcast(1, null, new NotificationMessage("hi"));
+        assertEquals(1, inGame.sent.size());
+        assertTrue(otherGame.sent.isEmpty());
+    }
+
+    @Test
+    void broadcastSkipsExcludedSession() throws Exception {
+        var sender = new FakeSession();
+        var watcher = new FakeSession();
+        connections.add(new ConnectedClient(sender.session, "a", 1));
+        connections.add(new ConnectedClient(watcher.session, "b", 1));
+        connections.broadcast(1, sender.session, new NotificationMessage("hi"));
+        assertTrue(sender.sent.isEmpty());
+        assertEquals(1, watcher.sent.size());
+    }
+
+    @Test
+    void removeForgetsEmptyGame() {
+        var client = new FakeSession();
+        connections.add(new ConnectedClient(client.session, "a", 1));
+        assertEquals(1, connections.count(1));
+        connections.remove(client.session);
+        assertEquals(0, connections.count(1));
+        assertTrue(connections.connections.isEmpty());
+    }
+
+    @Test
+    void joiningAnotherGameMovesSession() throws Exception {
+        var client = new FakeSession();
+        connections.add(new ConnectedClient(client.session, "a", 1));
+        connections.add(new ConnectedClient(client.session, "a", 2));
+        assertEquals(0, connections.count(1));
+        assertEquals(1, connections.count(2));
+        connections.broadcast(1, null, new NotificationMessage("hi"));
+        assertTrue(client.sent.isEmpty());
+    }
+
+    @Test
+    void closedSessionsArePruned() throws Exception {
+        var closed = new FakeSession();
+        var open = new FakeSession();
+        connections.add(new ConnectedClient(closed.session, "a", 1));
+        connections.add(new ConnectedClient(open.session, "b", 1));
+        closed.open = false;
+        connections.broadcast(1, null, new NotificationMessage("hi"));
+        assertEquals(1, connections.count(1));
+        assertFalse(connections.connections.containsKey(closed.session));
+        assertEquals(1, open.sent.size());
+    }
+
+    @Test
+    void broadcastSendsSameFrameToEveryone() throws Exception {
+        var first = new FakeSession();
+        var second = new FakeSession();
+        connections.add(new ConnectedClient(first.session, "a", 1));
+        connections.add(new ConnectedClient(second.session, "b", 1));
+        connections.broadcastLoadGame(1, new ChessGame());
+        assertSame(first.sent.getFirst(), second.sent.getFirst());
+        assertEquals(new ChessGame(), new Gson().fromJson(first.sent.getFirst(), LoadGameMessage.class).game);
+    }
+
+    @Test
+    void loadGameIsReusedUntilGameChanges() throws Exception {
+        var client = new FakeSession();
+        connections.add(new ConnectedClient(client.session, "a", 1));
+        var game = new ChessGame();
+        var before = connections.loadGameFrame(1, game);
+        assertSame(before, connections.loadGameFrame(1, game));
+
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        var afterMove = connections.loadGameFrame(1, game);
+        assertNotEquals(before, afterMove);
+        assertEquals(game, new Gson().fromJson(afterMove.frameFor(client.session).text(), LoadGameMessage.class).game);
+
+        game.setGameStatus(ChessGame.GameStatus.RESIGNED);
+        assertNotEquals(afterMove, connections.loadGameFrame(1, game));
+    }
+
+    @Test
+    void loadGameForDifferentGameObjectIsEncodedAgain() {
+        var client = new FakeSession();
+        connections.add(new ConnectedClient(client.session, "a", 1));
+        var frame = connections.loadGameFrame(1, new ChessGame());
+        assertNotSame(frame, connections.loadGameFrame(1, new ChessGame()));
+    }
+
+    @Test
+    void slowClientDoesNotHoldUpOthers() {
+        var slow = new FakeSession();
+        var fast = new FakeSession();
+        slow.stalled = true;
+        connections.add(new ConnectedClient(slow.session, "a", 1));
+        connections.add(new ConnectedClient(fast.session, "b", 1));
+        for (int i = 0; i < 3; i++) {
+            connections.broadcast(1, null, new NotificationMessage("message " + i));
+        }
+        assertEquals(3, fast.sent.size());
+        assertEquals(1, slow.sent.size());
+        assertEquals(2, connections.queueDepth(slow.session));
+        assertEquals(0, connections.queueDepth(fast.session));
+
+        slow.unfinished.removeFirst().writeSuccess();
+        assertEquals(2, slow.sent.size());
+        assertEquals(1, connections.queueDepths().get(slow.session));
+    }
+
+    @Test
+    void fullQueueKeepsOnlyLatestLoadGame() throws Exception {
+        connections = new ConnectionManager(2);
+        var slow = new FakeSession();
+        slow.stalled = true;
+        connections.add(new ConnectedClient(slow.session, "a", 1));
+        var game = new ChessGame();
+        connections.broadcast(1, null, new NotificationMessage("in flight"));
+        connections.broadcastLoadGame(1, game);
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        connections.broadcastLoadGame(1, game);
+        game.makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        connections.broadcastLoadGame(1, game);
+        assertEquals(1, connections.queueDepth(slow.session));
+        assertTrue(slow.open);
+
+        while (!slow.unfinished.isEmpty()) {
+            slow.unfinished.removeFirst().writeSuccess();
+        }
+        assertEquals(2, slow.sent.size());
+        assertEquals(game, new Gson().fromJson(slow.sent.getLast(), LoadGameMessage.class).game);
+    }
+
+    @Test
+    void clientThatStaysFullIsDisconnected() {
+        connections = new ConnectionManager(2);
+        var slow = new FakeSession();
+        slow.stalled = true;
+        connections.add(new ConnectedClient(slow.session, "a", 1));
+        for (int i = 0; i < 4; i++) {
+            connections.broadcast(1, null, new NotificationMessage("message " + i));
+        }
+        assertFalse(slow.open);
+        assertEquals(StatusCode.POLICY_VIOLATION, slow.closeCode);
+        assertEquals(0, connections.count(1));
+        assertEquals(0, connections.queueDepth(slow.session));
+    }
+
+    @Test
+    void moveUpdatesOnlyGoToClientsThatAskedForThem() throws Exception {
+        var plain = new FakeSession();
+        var updates = new FakeSession();
+        connections.add(new ConnectedClient(plain.session, "a", 1));
+        connections.add(new ConnectedClient(updates.session, "b", 1, true));
+        var game = new ChessGame();
+        connections.broadcastLoadGame(1, game);
+        var before = new Gson().fromJson(updates.sent.getFirst(), LoadGameMessage.class).game;
+
+        var move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(move);
+        game.evaluateStatus();
+        connections.broadcastMove(1, game, move);
+        assertEquals(game, new Gson().fromJson(plain.sent.getLast(), LoadGameMessage.class).game);
+
+        var update = new Gson().fromJson(updates.sent.getLast(), MoveMessage.class);
+        assertEquals(ServerMessage.ServerMessageType.MOVE, update.getServerMessageType());
+        assertEquals(move, update.move);
+        before.makeMove(update.move);
+        before.setGameStatus(update.status);
+        assertEquals(GameCodec.hash(before), update.stateHash);
+    }
+
+    @Test
+    void binaryClientsGetBinaryFrames() throws Exception {
+        var text = new FakeSession();
+        var binary = new FakeSession(BinaryProtocol.SUBPROTOCOL);
+        var other = new FakeSession(BinaryProtocol.SUBPROTOCOL);
+        connections.add(new ConnectedClient(text.session, "a", 1));
+        connections.add(new ConnectedClient(binary.session, "b", 1));
+        connections.add(new ConnectedClient(other.session, "c", 1));
+        var game = new ChessGame();
+        connections.broadcastLoadGame(1, game);
+        assertEquals(game, new Gson().fromJson(text.sent.getFirst(), LoadGameMessage.class).game);
+        assertTrue(binary.sent.isEmpty());
+        assertSame(binary.sentBytes.getFirst().array(), other.sentBytes.getFirst().array());
+        var load = BinaryProtocol.decodeMessage(binary.sentBytes.getFirst());
+        assertEquals(game, assertInstanceOf(LoadGameMessage.class, load).game);
+
+        connections.sendToClient(binary.session, new NotificationMessage("hi"));
+        var note = BinaryProtocol.decodeMessage(binary.sentBytes.getLast());
+        assertEquals("hi", assertInstanceOf(NotificationMessage.class, note).message);
+    }
+}
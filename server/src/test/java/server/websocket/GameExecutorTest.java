@@ -0,0 +1,104 @@
+package server.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameExecutorTest {
+
+    @Test
+    void runsOneGameInOrder() throws Exception {
+        var executor = new GameExecutor();
+        var order = Collections.synchronizedList(new ArrayList<Integer>());
+        var done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            int task = i;
+            executor.submit(1, () -> {
+                order.add(task);
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    void neverRunsOneGameTwiceAtOnce() throws Exception {
+        var executor = new GameExecutor();
+        var running = new int[1];
+        var overlaps = new int[1];
+        var done = new CountDownLatch(400);
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            submitters.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 100; i++) {
+                    executor.submit(7, () -> {
+                        if (++running[0] != 1) {
+                            overlaps[0]++;
+                        }
+                        Thread.yield();
+                        running[0]--;
+                        done.countDown();
+                    });
+                }
+            }));
+        }
+        for (var thread : submitters) {
+            thread.join();
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, overlaps[0]);
+    }
+
+    @Test
+    void gamesRunAtTheSameTime() throws Exception {
+        var executor = new GameExecutor();
+        var bothStarted = new CountDownLatch(2);
+        var done = new CountDownLatch(2);
+        for (int gameID = 1; gameID <= 2; gameID++) {
+            executor.submit(gameID, () -> {
+                bothStarted.countDown();
+                try {
+                    if (bothStarted.await(5, TimeUnit.SECONDS)) {
+                        done.countDown();
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failedTaskDoesNotStopGame() throws Exception {
+        var executor = new GameExecutor();
+        var done = new CountDownLatch(1);
+        executor.submit(1, () -> {
+            throw new IllegalStateException("boom");
+        });
+        executor.submit(1, done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void idleGamesAreForgotten() throws Exception {
+        var executor = new GameExecutor();
+        var done = new CountDownLatch(1);
+        executor.submit(1, done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.activeGames() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, executor.activeGames());
+    }
+}
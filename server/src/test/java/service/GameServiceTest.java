@@ -2,6 +2,7 @@ package service;
 
 import dataaccess.DataAccess;
 import dataaccess.MySqlDataAccess;
+import datamodel.GameFilter;
 import datamodel.GameResult;
 import datamodel.UserData;
 import exception.AlreadyTakenException;
@@ -43,6 +44,37 @@ class GameServiceTest {
         assertNotNull(gameList);
     }
 
+    @Test
+    void listGamesPaged() throws Exception {
+        var authToken = userService.register(existingUser).authToken();
+        for (int i = 0; i < 5; i++) {
+            gameService.createGame(authToken, "game" + i);
+        }
+        var first = gameService.listGames(authToken, GameFilter.ALL, 0, 3);
+        assertEquals(3, first.size());
+        var rest = gameService.listGames(authToken, GameFilter.ALL, first.getLast().gameID(), 3);
+        assertEquals(2, rest.size());
+        assertTrue(rest.getFirst().gameID() > first.getLast().gameID());
+    }
+
+    @Test
+    void listGamesReturnsEveryPage() throws Exception {
+        var authToken = userService.register(existingUser).authToken();
+        for (int i = 0; i < GameService.MAX_PAGE_SIZE + 5; i++) {
+            gameService.createGame(authToken, "game" + i);
+        }
+        assertEquals(GameService.MAX_PAGE_SIZE + 5, gameService.listGames(authToken).size());
+    }
+
+    @Test
+    void listGamesBadPage() throws Exception {
+        var authToken = userService.register(existingUser).authToken();
+        assertThrows(BadRequestException.class, () -> gameService.listGames(authToken, GameFilter.ALL, 0, 0));
+        assertThrows(BadRequestException.class,
+                () -> gameService.listGames(authToken, GameFilter.ALL, 0, GameService.MAX_PAGE_SIZE + 1));
+        assertThrows(BadRequestException.class, () -> gameService.listGames(authToken, GameFilter.ALL, -1, 10));
+    }
+
     @Test
     void listGamesUnauthorized() throws Exception {
         userService.register(existingUser);
@@ -99,5 +131,22 @@ class GameServiceTest {
         assertThrows(BadRequestException.class, () -> gameService.joinGame(authToken, "bad", gameID));
         assertThrows(UnauthorizedException.class, () -> gameService.joinGame("bad", "BLACK", gameID));
         assertThrows(AlreadyTakenException.class, () -> gameService.joinGame(testAuth, "WHITE", gameID));
+        assertThrows(AlreadyTakenException.class, () -> gameService.joinGame(authToken, "WHITE", gameID));
+    }
+
+    @Test
+    void getPlayerColor() throws Exception {
+        var res = userService.register(existingUser);
+        var authToken = res.authToken();
+        var gameID = gameService.createGame(authToken, "test");
+        assertNull(gameService.getPlayerColor(existingUser.username(), gameID));
+        gameService.joinGame(authToken, "BLACK", gameID);
+        assertEquals("black", gameService.getPlayerColor(existingUser.username(), gameID));
+        assertNull(gameService.getPlayerColor("someone else", gameID));
+    }
+
+    @Test
+    void getPlayerColorBadGame() throws Exception {
+        assertNull(gameService.getPlayerColor(existingUser.username(), 10));
     }
-}
\ No newline at end of file
+}
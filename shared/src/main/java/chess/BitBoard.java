@@ -0,0 +1,601 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Bitboard form of a chess position that backs {@link ChessBoard}
+ * <p>
+ * Holds one 64-bit mask per piece kind (twelve in total) plus an occupancy
+ * mask per team, and a mailbox so the piece on a square can be found
+ * without scanning masks. Squares are indexed (row - 1) * 8 + (column - 1),
+ * so bit 0 is A1 and bit 63 is H8.
+ */
+public class BitBoard {
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+    public static final int EMPTY = -1;
+
+    public static final int KING = 0;
+    public static final int QUEEN = 1;
+    public static final int BISHOP = 2;
+    public static final int KNIGHT = 3;
+    public static final int ROOK = 4;
+    public static final int PAWN = 5;
+
+    /** Upper bound on the pseudo-legal moves of a whole team */
+    public static final int MAX_MOVES = 256;
+    /** Upper bound on the pseudo-legal moves of one piece (a queen in the open) */
+    public static final int MAX_PIECE_MOVES = 27;
+
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long FILE_H = FILE_A << 7;
+
+    // Ray directions; the first four move towards higher square indexes
+    private static final int NORTH = 0;
+    private static final int EAST = 1;
+    private static final int NORTH_EAST = 2;
+    private static final int NORTH_WEST = 3;
+    private static final int SOUTH = 4;
+    private static final int WEST = 5;
+    private static final int SOUTH_WEST = 6;
+    private static final int SOUTH_EAST = 7;
+    private static final int[][] DIRECTIONS = {
+            {1, 0}, {0, 1}, {1, 1}, {1, -1}, {-1, 0}, {0, -1}, {-1, -1}, {-1, 1}
+    };
+
+    private static final long[][] RAYS = new long[8][64];
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+    // Squares strictly between two squares on a shared rank, file or diagonal
+    private static final long[][] BETWEEN = new long[64][64];
+
+    // Zobrist keys come from a fixed seed so every process hashes a position the same way
+    private static final long[][] ZOBRIST = new long[12][64];
+    /** Mixed into a position's key when black is to move */
+    public static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C4E55L);
+        for (long[] pieceKeys : ZOBRIST) {
+            for (int sq = 0; sq < 64; sq++) {
+                pieceKeys[sq] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    static {
+        int[][] knightJumps = {{2, 1}, {1, 2}, {-1, 2}, {-2, 1}, {-2, -1}, {-1, -2}, {1, -2}, {2, -1}};
+        for (int sq = 0; sq < 64; sq++) {
+            int row = sq / 8;
+            int col = sq % 8;
+            for (int dir = 0; dir < 8; dir++) {
+                int r = row + DIRECTIONS[dir][0];
+                int c = col + DIRECTIONS[dir][1];
+                if (onBoard(r, c)) {
+                    KING_ATTACKS[sq] |= 1L << (r * 8 + c);
+                }
+                while (onBoard(r, c)) {
+                    BETWEEN[sq][r * 8 + c] = RAYS[dir][sq];
+                    RAYS[dir][sq] |= 1L << (r * 8 + c);
+                    r += DIRECTIONS[dir][0];
+                    c += DIRECTIONS[dir][1];
+                }
+            }
+            for (int[] jump : knightJumps) {
+                if (onBoard(row + jump[0], col + jump[1])) {
+                    KNIGHT_ATTACKS[sq] |= 1L << ((row + jump[0]) * 8 + col + jump[1]);
+                }
+            }
+            long bit = 1L << sq;
+            PAWN_ATTACKS[WHITE][sq] = ((bit << 7) & ~FILE_H) | ((bit << 9) & ~FILE_A);
+            PAWN_ATTACKS[BLACK][sq] = ((bit >>> 9) & ~FILE_H) | ((bit >>> 7) & ~FILE_A);
+        }
+    }
+
+    private final long[] pieces = new long[12];
+    private final long[] occupancy = new long[2];
+    private final byte[] mailbox = new byte[64];
+    // Kept up to date as squares change rather than rescanned on every query
+    private final int[] kings = {EMPTY, EMPTY};
+    private final long[] attacks = new long[64];
+    private final long[] attackMaps = new long[2];
+    private int staleMaps;
+    private long key;
+    // One entry per move made: the move, the captured piece plus one and the moving piece
+    private int[] undo = new int[16];
+    private int undoSize;
+
+    public BitBoard() {
+        Arrays.fill(mailbox, (byte) EMPTY);
+    }
+
+    public BitBoard(BitBoard copy) {
+        System.arraycopy(copy.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(copy.occupancy, 0, occupancy, 0, occupancy.length);
+        System.arraycopy(copy.mailbox, 0, mailbox, 0, mailbox.length);
+        System.arraycopy(copy.kings, 0, kings, 0, kings.length);
+        System.arraycopy(copy.attacks, 0, attacks, 0, attacks.length);
+        System.arraycopy(copy.attackMaps, 0, attackMaps, 0, attackMaps.length);
+        staleMaps = copy.staleMaps;
+        key = copy.key;
+    }
+
+    /**
+     * @return the square index for a board position
+     */
+    public static int square(ChessPosition pos) {
+        return (pos.getRow() - 1) * 8 + pos.getColumn() - 1;
+    }
+
+    public static int square(int row, int col) {
+        return (row - 1) * 8 + col - 1;
+    }
+
+    public static int pieceIndex(ChessPiece piece) {
+        return piece.getTeamColor().ordinal() * 6 + piece.getPieceType().ordinal();
+    }
+
+    public static int pieceIndex(int color, int type) {
+        return color * 6 + type;
+    }
+
+    public static int colorOf(int pieceIndex) {
+        return pieceIndex / 6;
+    }
+
+    public static int typeOf(int pieceIndex) {
+        return pieceIndex % 6;
+    }
+
+    /**
+     * Puts a piece on a square, replacing whatever was there
+     *
+     * @param sq the square index
+     * @param pieceIndex the piece to place, or EMPTY to clear the square
+     */
+    public void set(int sq, int pieceIndex) {
+        int old = mailbox[sq];
+        if (old == pieceIndex) {
+            return;
+        }
+        long bit = 1L << sq;
+        if (old != EMPTY) {
+            pieces[old] &= ~bit;
+            occupancy[colorOf(old)] &= ~bit;
+            key ^= ZOBRIST[old][sq];
+        }
+        if (pieceIndex != EMPTY) {
+            pieces[pieceIndex] |= bit;
+            occupancy[colorOf(pieceIndex)] |= bit;
+            key ^= ZOBRIST[pieceIndex][sq];
+        }
+        mailbox[sq] = (byte) pieceIndex;
+        if (typeOf(old) == KING) {
+            updateKing(colorOf(old));
+        }
+        if (typeOf(pieceIndex) == KING) {
+            updateKing(colorOf(pieceIndex));
+        }
+        updateAttacks(sq);
+    }
+
+    public void clear(int sq) {
+        set(sq, EMPTY);
+    }
+
+    private void updateKing(int color) {
+        long king = pieces[pieceIndex(color, KING)];
+        kings[color] = (king == 0) ? EMPTY : Long.numberOfTrailingZeros(king);
+    }
+
+    /*
+     * Only the changed square and the sliders whose rays reached it can
+     * attack a different set of squares afterwards.
+     */
+    private void updateAttacks(int sq) {
+        long bit = 1L << sq;
+        long occupied = occupancy();
+        long sliders = (pieces[QUEEN] | pieces[BISHOP] | pieces[ROOK]
+                | pieces[6 + QUEEN] | pieces[6 + BISHOP] | pieces[6 + ROOK]) & ~bit;
+        while (sliders != 0) {
+            int slider = Long.numberOfTrailingZeros(sliders);
+            sliders &= sliders - 1;
+            if ((attacks[slider] & bit) != 0) {
+                int piece = mailbox[slider];
+                attacks[slider] = attacks(typeOf(piece), colorOf(piece), slider, occupied);
+            }
+        }
+        int piece = mailbox[sq];
+        attacks[sq] = (piece == EMPTY) ? 0 : attacks(typeOf(piece), colorOf(piece), sq, occupied);
+        staleMaps = 3;
+    }
+
+    /**
+     * @return every square the team attacks or defends
+     */
+    public long attackMap(int color) {
+        if ((staleMaps & (1 << color)) != 0) {
+            long map = 0;
+            long own = occupancy[color];
+            while (own != 0) {
+                map |= attacks[Long.numberOfTrailingZeros(own)];
+                own &= own - 1;
+            }
+            attackMaps[color] = map;
+            staleMaps &= ~(1 << color);
+        }
+        return attackMaps[color];
+    }
+
+    /**
+     * @return True if the team's king is attacked
+     */
+    public boolean inCheck(int color) {
+        int king = kings[color];
+        return king != EMPTY && (attackMap(color ^ 1) & (1L << king)) != 0;
+    }
+
+    /**
+     * Determines if the team has any legal move. When the king can step to a
+     * square outside the enemy's attack map the answer comes straight from the
+     * maps; otherwise the team's moves are generated into the buffer and
+     * filtered.
+     *
+     * @param color the team to check
+     * @param moves scratch buffer at least MAX_MOVES long
+     * @return True if at least one legal move exists
+     */
+    public boolean hasLegalMove(int color, int[] moves) {
+        int king = kings[color];
+        if (king != EMPTY) {
+            long safe = KING_ATTACKS[king] & ~occupancy[color] & ~attackMap(color ^ 1);
+            // A slider's ray stops at the king, so squares behind it only look safe
+            int base = (color ^ 1) * 6;
+            long sliders = pieces[base + QUEEN] | pieces[base + BISHOP] | pieces[base + ROOK];
+            if (safe != 0 && (!inCheck(color) || (checkers(color) & sliders) == 0)) {
+                return true;
+            }
+        }
+        int count = generateMoves(color, moves, 0);
+        return filterLegal(color, moves, 0, count) > 0;
+    }
+
+    /**
+     * @return the Zobrist key of the pieces on this board, kept up to date as
+     * squares change
+     */
+    public long key() {
+        return key;
+    }
+
+    /**
+     * @return the piece index on the square, or EMPTY
+     */
+    public int get(int sq) {
+        return mailbox[sq];
+    }
+
+    public long pieces(int pieceIndex) {
+        return pieces[pieceIndex];
+    }
+
+    public long pieces(int color, int type) {
+        return pieces[pieceIndex(color, type)];
+    }
+
+    public long occupancy(int color) {
+        return occupancy[color];
+    }
+
+    public long occupancy() {
+        return occupancy[WHITE] | occupancy[BLACK];
+    }
+
+    /**
+     * @return the square of the team's king, or EMPTY if it has none
+     */
+    public int kingSquare(int color) {
+        return kings[color];
+    }
+
+    /**
+     * Determines if any piece of the given team attacks a square
+     *
+     * @param sq the square index
+     * @param byColor the attacking team
+     * @return True if the square is attacked
+     */
+    public boolean isAttacked(int sq, int byColor) {
+        return (attackMap(byColor) & (1L << sq)) != 0;
+    }
+
+    /**
+     * Same as {@link #isAttacked(int, int)} but slides through the supplied
+     * occupancy, so a caller can ask about a board with pieces lifted off
+     */
+    public boolean isAttacked(int sq, int byColor, long occupied) {
+        int base = byColor * 6;
+        if ((PAWN_ATTACKS[byColor ^ 1][sq] & pieces[base + PAWN]) != 0) {
+            return true;
+        }
+        if ((KNIGHT_ATTACKS[sq] & pieces[base + KNIGHT]) != 0) {
+            return true;
+        }
+        if ((KING_ATTACKS[sq] & pieces[base + KING]) != 0) {
+            return true;
+        }
+        long queens = pieces[base + QUEEN];
+        if ((bishopAttacks(sq, occupied) & (pieces[base + BISHOP] | queens)) != 0) {
+            return true;
+        }
+        return (rookAttacks(sq, occupied) & (pieces[base + ROOK] | queens)) != 0;
+    }
+
+    /**
+     * @return every square the piece on sq covers, including squares held by
+     * its own team, or 0 if the square is empty
+     */
+    public long attacksFrom(int sq) {
+        return attacks[sq];
+    }
+
+    public static long attacks(int type, int color, int sq, long occupied) {
+        return switch (type) {
+            case KING -> KING_ATTACKS[sq];
+            case QUEEN -> rookAttacks(sq, occupied) | bishopAttacks(sq, occupied);
+            case BISHOP -> bishopAttacks(sq, occupied);
+            case KNIGHT -> KNIGHT_ATTACKS[sq];
+            case ROOK -> rookAttacks(sq, occupied);
+            default -> PAWN_ATTACKS[color][sq];
+        };
+    }
+
+    /**
+     * Writes the pseudo-legal moves of every piece on one team into a buffer
+     *
+     * @param color the team to move
+     * @param moves buffer to write packed moves into, at least MAX_MOVES long
+     * @param count index of the first free slot in the buffer
+     * @return the index after the last move written
+     */
+    public int generateMoves(int color, int[] moves, int count) {
+        long own = occupancy[color];
+        while (own != 0) {
+            int from = Long.numberOfTrailingZeros(own);
+            own &= own - 1;
+            count = generateMoves(typeOf(mailbox[from]), color, from, moves, count);
+        }
+        return count;
+    }
+
+    /**
+     * Writes the pseudo-legal moves of a piece standing on a square into a
+     * buffer. Moves are packed as described in {@link PackedMove}.
+     *
+     * @param type the piece's type
+     * @param color the piece's team
+     * @param from the square the piece stands on
+     * @param moves buffer to write packed moves into
+     * @param count index of the first free slot in the buffer
+     * @return the index after the last move written
+     */
+    public int generateMoves(int type, int color, int from, int[] moves, int count) {
+        long own = occupancy[color];
+        long enemy = occupancy[color ^ 1];
+        if (type == PAWN) {
+            return generatePawnMoves(color, from, enemy, own | enemy, moves, count);
+        }
+        long targets = attacks(type, color, from, own | enemy) & ~own;
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves[count++] = PackedMove.of(from, to, EMPTY, (enemy & (1L << to)) != 0 ? PackedMove.CAPTURE : 0);
+        }
+        return count;
+    }
+
+    private int generatePawnMoves(int color, int from, long enemy, long occupied, int[] moves, int count) {
+        int forward = (color == WHITE) ? 8 : -8;
+        int startRow = (color == WHITE) ? 1 : 6;
+        int oneSpace = from + forward;
+        if (oneSpace < 0 || oneSpace > 63) {
+            return count;
+        }
+        if ((occupied & (1L << oneSpace)) == 0) {
+            count = addPawnMove(from, oneSpace, 0, moves, count);
+            int twoSpaces = oneSpace + forward;
+            if (from / 8 == startRow && (occupied & (1L << twoSpaces)) == 0) {
+                moves[count++] = PackedMove.of(from, twoSpaces, EMPTY, 0);
+            }
+        }
+        long captures = PAWN_ATTACKS[color][from] & enemy;
+        while (captures != 0) {
+            int to = Long.numberOfTrailingZeros(captures);
+            captures &= captures - 1;
+            count = addPawnMove(from, to, PackedMove.CAPTURE, moves, count);
+        }
+        return count;
+    }
+
+    private static int addPawnMove(int from, int to, int flags, int[] moves, int count) {
+        if (to < 8 || to > 55) {
+            for (int promotion = QUEEN; promotion <= ROOK; promotion++) {
+                moves[count++] = PackedMove.of(from, to, promotion, flags);
+            }
+        }
+        else {
+            moves[count++] = PackedMove.of(from, to, EMPTY, flags);
+        }
+        return count;
+    }
+
+    /**
+     * Plays a packed move on this board without checking it, capturing
+     * whatever stands on the end square. The move is remembered so
+     * {@link #unmake()} can take it back.
+     *
+     * @param move the packed move to play
+     */
+    public void make(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int mover = mailbox[from];
+        int captured = mailbox[to];
+        if (undoSize == undo.length) {
+            undo = Arrays.copyOf(undo, undoSize * 2);
+        }
+        undo[undoSize++] = PackedMove.withoutFlags(move) | ((captured + 1) << 16) | (mover << 20);
+        int promotion = PackedMove.promotion(move);
+        clear(from);
+        set(to, promotion == EMPTY ? mover : pieceIndex(colorOf(mover), promotion));
+    }
+
+    /**
+     * Takes back the last move played with {@link #make(int)}
+     */
+    public void unmake() {
+        int entry = undo[--undoSize];
+        int to = PackedMove.to(entry);
+        int captured = ((entry >>> 16) & 0xF) - 1;
+        set(PackedMove.from(entry), entry >>> 20);
+        set(to, captured);
+    }
+
+    /**
+     * @return the enemy pieces giving check to the team's king
+     */
+    public long checkers(int color) {
+        int king = kingSquare(color);
+        if (king == EMPTY) {
+            return 0;
+        }
+        return attackersOf(king, color ^ 1, occupancy());
+    }
+
+    /**
+     * @return the team's pieces that are the only thing standing between
+     * their king and an enemy slider
+     */
+    public long pinned(int color) {
+        int king = kingSquare(color);
+        if (king == EMPTY) {
+            return 0;
+        }
+        int base = (color ^ 1) * 6;
+        long queens = pieces[base + QUEEN];
+        long snipers = (rookAttacks(king, 0) & (pieces[base + ROOK] | queens))
+                | (bishopAttacks(king, 0) & (pieces[base + BISHOP] | queens));
+        long occupied = occupancy();
+        long pinned = 0;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = BETWEEN[king][sniper] & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) {
+                pinned |= blockers & occupancy[color];
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * Removes the moves that would leave the mover's king attacked from a
+     * range of the buffer, packing the legal ones to the front of the range
+     * <p>
+     * King moves are checked against the board with the king lifted off.
+     * Any other move is legal outright when the king is not in check and
+     * the piece is not pinned; the rest are played, checked and taken back.
+     *
+     * @param color the team the moves belong to
+     * @param moves buffer holding packed pseudo-legal moves
+     * @param start index of the first move to check
+     * @param end index after the last move to check
+     * @return the index after the last legal move
+     */
+    public int filterLegal(int color, int[] moves, int start, int end) {
+        int king = kingSquare(color);
+        if (king == EMPTY) {
+            return end;
+        }
+        int enemy = color ^ 1;
+        long checkers = checkers(color);
+        long pinned = pinned(color);
+        long withoutKing = occupancy() & ~(1L << king);
+        int count = start;
+        for (int i = start; i < end; i++) {
+            int move = moves[i];
+            int from = PackedMove.from(move);
+            boolean legal;
+            if (from == king) {
+                legal = !isAttacked(PackedMove.to(move), enemy, withoutKing);
+            }
+            else if (checkers == 0 && (pinned & (1L << from)) == 0) {
+                legal = true;
+            }
+            else {
+                make(move);
+                legal = !isAttacked(king, enemy);
+                unmake();
+            }
+            if (legal) {
+                moves[count++] = move;
+            }
+        }
+        return count;
+    }
+
+    private long attackersOf(int sq, int byColor, long occupied) {
+        int base = byColor * 6;
+        long queens = pieces[base + QUEEN];
+        return (PAWN_ATTACKS[byColor ^ 1][sq] & pieces[base + PAWN])
+                | (KNIGHT_ATTACKS[sq] & pieces[base + KNIGHT])
+                | (KING_ATTACKS[sq] & pieces[base + KING])
+                | (bishopAttacks(sq, occupied) & (pieces[base + BISHOP] | queens))
+                | (rookAttacks(sq, occupied) & (pieces[base + ROOK] | queens));
+    }
+
+    public static long rookAttacks(int sq, long occupied) {
+        return ray(NORTH, sq, occupied) | ray(EAST, sq, occupied)
+                | ray(SOUTH, sq, occupied) | ray(WEST, sq, occupied);
+    }
+
+    public static long bishopAttacks(int sq, long occupied) {
+        return ray(NORTH_EAST, sq, occupied) | ray(NORTH_WEST, sq, occupied)
+                | ray(SOUTH_EAST, sq, occupied) | ray(SOUTH_WEST, sq, occupied);
+    }
+
+    private static long ray(int dir, int sq, long occupied) {
+        long attacks = RAYS[dir][sq];
+        long blockers = attacks & occupied;
+        if (blockers != 0) {
+            int first = dir < SOUTH ? Long.numberOfTrailingZeros(blockers) : 63 - Long.numberOfLeadingZeros(blockers);
+            attacks ^= RAYS[dir][first];
+        }
+        return attacks;
+    }
+
+    private static boolean onBoard(int row, int col) {
+        return row >= 0 && row < 8 && col >= 0 && col < 8;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BitBoard that = (BitBoard) o;
+        return key == that.key && Arrays.equals(pieces, that.pieces);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(key);
+    }
+}
@@ -11,6 +11,9 @@ import java.util.Arrays;
 public class ChessBoard {
 
     private ChessPiece[][] board = new ChessPiece[8][8];
+    // Rebuilt from board on first use, so boards read back through Gson get one too
+    private transient BitBoard bits;
+
     public ChessBoard() {
     }
     public ChessBoard(ChessBoard copy) {
@@ -18,6 +21,9 @@ public class ChessBoard {
         for (int row = 0; row < 8; row++) {
             board[row] = Arrays.copyOf(copy.board[row], copy.board.length);
         }
+        if (copy.bits != null) {
+            bits = new BitBoard(copy.bits);
+        }
     }
 
     /**
@@ -28,6 +34,9 @@ public class ChessBoard {
      */
     public void addPiece(ChessPosition pos, ChessPiece piece) {
         board[pos.getRow() - 1][pos.getColumn() - 1] = piece;
+        if (bits != null) {
+            bits.set(BitBoard.square(pos), piece == null ? BitBoard.EMPTY : BitBoard.pieceIndex(piece));
+        }
     }
 
     /**
@@ -43,6 +52,40 @@ public class ChessBoard {
 
     public void removePiece(ChessPosition pos) {
         board[pos.getRow() - 1][pos.getColumn() - 1] = null;
+        if (bits != null) {
+            bits.clear(BitBoard.square(pos));
+        }
+    }
+
+    /**
+     * Gets a 64-bit Zobrist key for the pieces on this board. Equal boards
+     * always have equal keys, and the key is updated as pieces are added and
+     * removed rather than recomputed.
+     *
+     * @return the board's Zobrist key
+     */
+    public long getZobristKey() {
+        return bits().key();
+    }
+
+    /**
+     * Gets the bitboard engine for this board, building it from the piece
+     * array the first time it is needed
+     *
+     * @return the bitboard kept in step with this board
+     */
+    BitBoard bits() {
+        if (bits == null) {
+            bits = new BitBoard();
+            for (int row = 0; row < 8; row++) {
+                for (int col = 0; col < 8; col++) {
+                    if (board[row][col] != null) {
+                        bits.set(row * 8 + col, BitBoard.pieceIndex(board[row][col]));
+                    }
+                }
+            }
+        }
+        return bits;
     }
     /**
      * Sets the board to the default starting board
@@ -53,55 +96,55 @@ public class ChessBoard {
         ChessPiece white;
         ChessPiece black;
         // Pawns
-        white = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
-        black = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+        white = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
+        black = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
         for (int i = 1; i < 9; i++) {
-            pos = new ChessPosition(2, i);
+            pos = ChessPosition.of(2, i);
             addPiece(pos, white);
-            pos = new ChessPosition(7, i);
+            pos = ChessPosition.of(7, i);
             addPiece(pos, black);
 
         }
         // Rooks
-        white = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
-        black = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
+        white = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
+        black = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
         for (int i = 1; i < 9; i += 7) {
-            pos = new ChessPosition(1, i);
+            pos = ChessPosition.of(1, i);
             addPiece(pos, white);
-            pos = new ChessPosition(8, i);
+            pos = ChessPosition.of(8, i);
             addPiece(pos, black);
         }
         // Knights
-        white = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
-        black = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
+        white = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
+        black = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
         for (int i = 2; i < 8; i += 5) {
-            pos = new ChessPosition(1, i);
+            pos = ChessPosition.of(1, i);
             addPiece(pos, white);
-            pos = new ChessPosition(8, i);
+            pos = ChessPosition.of(8, i);
             addPiece(pos, black);
         }
         // Bishops
-        white = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
-        black = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
+        white = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
+        black = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
         for (int i = 3; i < 7; i += 3) {
-            pos = new ChessPosition(1, i);
+            pos = ChessPosition.of(1, i);
             addPiece(pos, white);
-            pos = new ChessPosition(8, i);
+            pos = ChessPosition.of(8, i);
             addPiece(pos, black);
         }
         // Queens
-        white = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN);
-        black = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
-        pos = new ChessPosition(1, 4);
+        white = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN);
+        black = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
+        pos = ChessPosition.of(1, 4);
         addPiece(pos, white);
-        pos = new ChessPosition(8, 4);
+        pos = ChessPosition.of(8, 4);
         addPiece(pos, black);
         // Kings
-        white = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
-        black = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
-        pos = new ChessPosition(1, 5);
+        white = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
+        black = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
+        pos = ChessPosition.of(1, 5);
         addPiece(pos, white);
-        pos = new ChessPosition(8, 5);
+        pos = ChessPosition.of(8, 5);
         addPiece(pos, black);
     }
 
@@ -112,7 +155,7 @@ public class ChessBoard {
         ChessPiece piece;
         for (int i = 8; i > 0; i--) {
             for (int j = 1; j < 9; j++) {
-                piece = getPiece(new ChessPosition(i, j));
+                piece = getPiece(ChessPosition.of(i, j));
                 if (j == 8) {
                     if (piece == null) {
                         boardString.append("| \u2003 |\n");
@@ -148,11 +191,11 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Arrays.deepEquals(board, that.board);
+        return bits().equals(that.bits());
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        return Long.hashCode(getZobristKey());
     }
 }
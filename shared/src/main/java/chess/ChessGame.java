@@ -1,6 +1,7 @@
 package chess;
 
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Objects;
 
 /**
@@ -13,6 +14,10 @@ public class ChessGame {
     private final ChessBoard gameBoard = new ChessBoard();
     private TeamColor teamTurn = TeamColor.WHITE;
     private GameStatus status = GameStatus.PLAYING;
+    private int ply;
+    private transient int[] moveBuffer;
+    private transient GameStatus evaluatedStatus;
+    private transient long evaluatedKey;
 
     public enum GameStatus {
         PLAYING,
@@ -49,6 +54,60 @@ public class ChessGame {
         this.status = status;
     }
 
+    /**
+     * @return the number of moves made in this game so far, counting each
+     * side's move separately
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    public void setPly(int ply) {
+        this.ply = ply;
+    }
+
+    /**
+     * Works out check, checkmate and stalemate for the team whose turn it is
+     * in a single pass over its legal moves, and records the result as the
+     * game status. The result is cached against the game's Zobrist key, so
+     * it is reused until the position or turn changes. A resigned game stays
+     * resigned.
+     *
+     * @return the status of the game for the team to move
+     */
+    public GameStatus evaluateStatus() {
+        if (status == GameStatus.RESIGNED) {
+            return status;
+        }
+        long key = getZobristKey();
+        if (evaluatedStatus == null || evaluatedKey != key) {
+            evaluatedKey = key;
+            int color = teamTurn.ordinal();
+            BitBoard bits = gameBoard.bits();
+            boolean check = bits.inCheck(color);
+            boolean canMove = bits.hasLegalMove(color, moveBuffer());
+            if (check) {
+                evaluatedStatus = canMove ? GameStatus.CHECK : GameStatus.CHECKMATE;
+            }
+            else {
+                evaluatedStatus = canMove ? GameStatus.PLAYING : GameStatus.STALEMATE;
+            }
+        }
+        status = evaluatedStatus;
+        return status;
+    }
+
+    /**
+     * Gets a 64-bit Zobrist key for the position, covering the pieces and
+     * whose turn it is
+     *
+     * @return the game's Zobrist key
+     */
+    public long getZobristKey() {
+        long key = gameBoard.getZobristKey();
+        return (teamTurn == TeamColor.BLACK) ? key ^ BitBoard.BLACK_TO_MOVE : key;
+    }
+
     /**
      * Enum identifying the 2 possible teams in a chess game
      */
@@ -69,14 +128,12 @@ public class ChessGame {
         if (piece == null) {
             return null;
         }
-        Collection<ChessMove> moves = piece.pieceMoves(gameBoard, startPosition),
-                valid = piece.pieceMoves(gameBoard, startPosition);
-        for (ChessMove move : moves) {
-            try {
-                testMove(move);
-            } catch (InvalidMoveException ex) {
-                valid.remove(move);
-            }
+        int[] moves = moveBuffer();
+        int count = piece.pieceMoves(gameBoard, startPosition, moves, 0);
+        count = gameBoard.bits().filterLegal(piece.getTeamColor().ordinal(), moves, 0, count);
+        Collection<ChessMove> valid = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            valid.add(PackedMove.toChessMove(moves[i]));
         }
         return valid;
     }
@@ -94,12 +151,11 @@ public class ChessGame {
         if (getTeamTurn() != gameBoard.getPiece(move.getStartPosition()).getTeamColor()) {
             throw new InvalidMoveException("Error: not your turn");
         }
-        Collection<ChessMove> valid;
-        valid = validMoves(move.getStartPosition());
-        if (!valid.contains(move)) {
+        if (!isLegal(move)) {
             throw new InvalidMoveException("Error: invalid Move");
         }
         movePiece(move, gameBoard);
+        ply++;
         if (getTeamTurn() == TeamColor.WHITE) {
             setTeamTurn(TeamColor.BLACK);
         }
@@ -115,9 +171,7 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPos = findKing(gameBoard, teamColor);
-//        return checkIfAttacked(gameBoard, kingPos, teamColor);
-        if (checkIfAttacked(gameBoard, kingPos, teamColor)) {
+        if (gameBoard.bits().inCheck(teamColor.ordinal())) {
             status = GameStatus.CHECK;
             return true;
         }
@@ -131,12 +185,9 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        if (checkKingMoves(teamColor) && checkIfStuck(gameBoard, teamColor)) {
-//            return isInCheck(teamColor);
-            if (isInCheck(teamColor)) {
-                status = GameStatus.CHECKMATE;
-                return true;
-            }
+        if (gameBoard.bits().inCheck(teamColor.ordinal()) && !hasLegalMove(teamColor)) {
+            status = GameStatus.CHECKMATE;
+            return true;
         }
         return false;
     }
@@ -149,35 +200,13 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        if (checkKingMoves(teamColor) && checkIfStuck(gameBoard, teamColor)) {
-//            return !isInCheck(teamColor);
-            if (!isInCheck(teamColor)) {
-                status = GameStatus.STALEMATE;
-                return true;
-            }
+        if (!gameBoard.bits().inCheck(teamColor.ordinal()) && !hasLegalMove(teamColor)) {
+            status = GameStatus.STALEMATE;
+            return true;
         }
         return false;
     }
 
-    private boolean checkKingMoves(TeamColor teamColor) {
-        boolean noMoves = false;
-        ChessPosition kingPos = findKing(gameBoard, teamColor);
-        ChessPosition movePos;
-        assert kingPos != null;
-        ChessPiece king = gameBoard.getPiece(kingPos);
-        Collection<ChessMove> moves = king.pieceMoves(gameBoard, kingPos);
-        for (ChessMove move : moves) {
-            movePos = move.getEndPosition();
-            if (checkIfAttacked(gameBoard, movePos, teamColor)) {
-                noMoves = true;
-                continue;
-            }
-            noMoves = false;
-            break;
-        }
-        return noMoves;
-    }
-
     /**
      * Sets this game's chessboard with a given board
      *
@@ -188,7 +217,7 @@ public class ChessGame {
         ChessPosition tempPos;
         for (int i = 1; i < 9; i++) {
             for (int j = 1; j < 9; j++) {
-                tempPos = new ChessPosition(i, j);
+                tempPos = ChessPosition.of(i, j);
                 tempPiece = board.getPiece(tempPos);
                 gameBoard.addPiece(tempPos, tempPiece);
             }
@@ -204,66 +233,6 @@ public class ChessGame {
         return gameBoard;
     }
 
-    private ChessPosition findKing(ChessBoard board, TeamColor team) {
-        ChessPiece testPiece;
-        ChessPosition testPos;
-        for (int i = 1; i < 9; i++) {
-            for (int j = 1; j < 9; j++) {
-                testPos = new ChessPosition(i, j);
-                testPiece = board.getPiece(testPos);
-                if (testPiece == null) {
-                    continue;
-                }
-                if (testPiece.getPieceType() == ChessPiece.PieceType.KING) {
-                    if (testPiece.getTeamColor() == team) {
-                        return testPos;
-                    }
-                }
-            }
-        }
-        return null;
-    }
-
-    private boolean checkIfAttacked(ChessBoard board, ChessPosition pos, TeamColor teamColor) {
-        ChessPosition testPos;
-        ChessPosition movePos;
-        ChessPiece testPiece;
-        Collection<ChessMove> testList;
-        for (int i = 1; i < 9; i++) {
-            for (int j = 1; j < 9; j++) {
-                testPos = new ChessPosition(i, j);
-                testPiece = board.getPiece(testPos);
-                if (testPiece == null || testPiece.getTeamColor() == teamColor) {
-                    continue;
-                }
-                testList = testPiece.coveredSquares(board, testPos);
-                checkIfPawnCovers(testList, testPos, testPiece);
-                for (ChessMove move : testList) {
-                    movePos = move.getEndPosition();
-                    if (movePos.getRow() == pos.getRow() && movePos.getColumn() == pos.getColumn()) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
-    }
-
-    private void checkIfPawnCovers(Collection<ChessMove> list, ChessPosition pos, ChessPiece piece) {
-        if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
-            var row = pos.getRow();
-            var col = pos.getColumn();
-            if (piece.getTeamColor() == TeamColor.WHITE) {
-                list.add(new ChessMove(pos, new ChessPosition(row + 1, col + 1), null));
-                list.add(new ChessMove(pos, new ChessPosition(row + 1, col - 1), null));
-            }
-            else {
-                list.add(new ChessMove(pos, new ChessPosition(row - 1, col + 1), null));
-                list.add(new ChessMove(pos, new ChessPosition(row - 1, col - 1), null));
-            }
-        }
-    }
-
     private void movePiece(ChessMove move, ChessBoard board) {
         ChessPosition start = move.getStartPosition();
         ChessPosition end = move.getEndPosition();
@@ -278,41 +247,35 @@ public class ChessGame {
             if (board.getPiece(end) != null) {
                 board.removePiece(end);
             }
-            promotion = new ChessPiece(board.getPiece(start).getTeamColor(), move.getPromotionPiece());
+            promotion = ChessPiece.of(board.getPiece(start).getTeamColor(), move.getPromotionPiece());
             board.addPiece(end, promotion);
         }
         board.removePiece(start);
     }
 
-    private void testMove(ChessMove move) throws InvalidMoveException {
-        ChessBoard testBoard = new ChessBoard(gameBoard);
-        TeamColor color = testBoard.getPiece(move.getStartPosition()).getTeamColor();
-        movePiece(move, testBoard);
-        if (checkIfAttacked(testBoard, findKing(testBoard, color), color)) {
-            throw new InvalidMoveException();
+    private boolean isLegal(ChessMove move) {
+        int wanted = PackedMove.of(move);
+        int[] moves = moveBuffer();
+        ChessPiece piece = gameBoard.getPiece(move.getStartPosition());
+        int count = piece.pieceMoves(gameBoard, move.getStartPosition(), moves, 0);
+        count = gameBoard.bits().filterLegal(piece.getTeamColor().ordinal(), moves, 0, count);
+        for (int i = 0; i < count; i++) {
+            if (PackedMove.withoutFlags(moves[i]) == wanted) {
+                return true;
+            }
         }
+        return false;
     }
 
-    private boolean checkIfStuck(ChessBoard board, TeamColor color) {
-        ChessPosition testPos;
-        ChessPiece testPiece;
-        Collection<ChessMove> testList;
-        for (int i = 1; i < 9; i++) {
-            for (int j = 1; j < 9; j++) {
-                testPos = new ChessPosition(i, j);
-                testPiece = board.getPiece(testPos);
-                if (testPiece == null) {
-                    continue;
-                }
-                if (testPiece.getTeamColor() == color) {
-                    testList = validMoves(testPos);
-                    if (!testList.isEmpty()) {
-                        return false;
-                    }
-                }
-            }
+    private boolean hasLegalMove(TeamColor color) {
+        return gameBoard.bits().hasLegalMove(color.ordinal(), moveBuffer());
+    }
+
+    private int[] moveBuffer() {
+        if (moveBuffer == null) {
+            moveBuffer = new int[BitBoard.MAX_MOVES];
         }
-        return true;
+        return moveBuffer;
     }
 
     @Override
@@ -337,6 +300,6 @@ public class ChessGame {
 
     @Override
     public int hashCode() {
-        return Objects.hash(gameBoard, teamTurn);
+        return Long.hashCode(getZobristKey());
     }
 }
@@ -17,11 +17,35 @@ public class ChessPiece {
     private final ChessGame.TeamColor pieceColor;
     private final PieceType type;
 
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[color.ordinal() * 6 + type.ordinal()] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     public ChessPiece(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
         this.pieceColor = pieceColor;
         this.type = type;
     }
 
+    /**
+     * Gets the shared instance for a color and type. Pieces are immutable, so
+     * one instance of each of the twelve kinds can stand on any number of
+     * squares and boards.
+     *
+     * @return the canonical piece
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, PieceType type) {
+        if (pieceColor == null || type == null) {
+            return new ChessPiece(pieceColor, type);
+        }
+        return PIECES[pieceColor.ordinal() * 6 + type.ordinal()];
+    }
+
     /**
      * The various different chess piece options
      */
@@ -56,297 +80,44 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
+        int[] moves = new int[BitBoard.MAX_PIECE_MOVES];
+        int count = pieceMoves(board, myPosition, moves, 0);
         Collection<ChessMove> moveList = new HashSet<>();
-        if (getPieceType() == PieceType.KING) {
-            kingMoves(board, myPosition, moveList, false);
-        }
-        if (getPieceType() == PieceType.QUEEN) {
-            queenMoves(board, myPosition, moveList, false);
-        }
-        if (getPieceType() == PieceType.BISHOP) {
-            bishopMoves(board, myPosition, moveList, false);
-        }
-        if (getPieceType() == PieceType.KNIGHT) {
-            knightMoves(board, myPosition, moveList, false);
-        }
-        if (getPieceType() == PieceType.ROOK) {
-            rookMoves(board, myPosition, moveList, false);
-        }
-        if (getPieceType() == PieceType.PAWN) {
-            pawnMoves(board, myPosition, moveList, false);
+        for (int i = 0; i < count; i++) {
+            moveList.add(PackedMove.toChessMove(moves[i]));
         }
         return moveList;
     }
 
-    boolean enemy;
-    private void kingMoves(ChessBoard board, ChessPosition pos, Collection<ChessMove> moveList, boolean test) {
-        int row = pos.getRow();
-        int col = pos.getColumn();
-        ChessPosition end;
-        // Up
-        if (row + 1 <= 8) {
-            end = new ChessPosition(row + 1, col);
-            addMoveIfOccupied(board, pos, end, moveList, test);
-        }
-        // Up Right
-        if (row + 1 <= 8 && col + 1 <= 8) {
-            end = new ChessPosition(row + 1, col + 1);
-            addMoveIfOccupied(board, pos, end, moveList, test);
-        }
-        // Right
-        if (col + 1 <= 8) {
-            end = new ChessPosition(row, col + 1);
-            addMoveIfOccupied(board, pos, end, moveList, test);
-        }
-        // Down Right
-        if (row - 1 >= 1 && col + 1 <= 8) {
-            end = new ChessPosition(row - 1, col + 1);
-            addMoveIfOccupied(board, pos, end, moveList, test);
-        }
-        // Down
-        if (row - 1 >= 1) {
-            end = new ChessPosition(row - 1, col);
-            addMoveIfOccupied(board, pos, end, moveList, test);
-        }
-        // Down Left
-        if (row - 1 >= 1 && col - 1 >= 1) {
-            end = new ChessPosition(row - 1, col - 1);
-            addMoveIfOccupied(board, pos, end, moveList, test);
-        }
-        // Left
-        if (col - 1 >= 1) {
-            end = new ChessPosition(row, col - 1);
-            addMoveIfOccupied(board, pos, end, moveList, test);
-        }
-        // Up Left
-        if (row + 1 <= 8 && col - 1 >= 1) {
-            end = new ChessPosition(row + 1, col - 1);
-            addMoveIfOccupied(board, pos, end, moveList, test);
-        }
-    }
-
-    private void queenMoves(ChessBoard board, ChessPosition pos, Collection<ChessMove> moveList, boolean test) {
-        // Up
-        moveDirection(pos, 1, 0, board, moveList, test);
-        // Up Right
-        moveDirection(pos, 1, 1, board, moveList, test);
-        // Right
-        moveDirection(pos, 0, 1, board, moveList, test);
-        // Down Right
-        moveDirection(pos, -1, 1, board, moveList, test);
-        // Down
-        moveDirection(pos, -1, 0, board, moveList, test);
-        // Down Left
-        moveDirection(pos, -1, -1, board, moveList, test);
-        // Left
-        moveDirection(pos, 0, -1, board, moveList, test);
-        // Up Left
-        moveDirection(pos, 1, -1, board, moveList, test);
-    }
-
-    private void bishopMoves(ChessBoard board, ChessPosition pos, Collection<ChessMove> moveList, boolean test) {
-        // Up Right
-        moveDirection(pos, 1, 1, board, moveList, test);
-        // Down Right
-        moveDirection(pos, -1, 1, board, moveList, test);
-        // Down Left
-        moveDirection(pos, -1, -1, board, moveList, test);
-        // Up Left
-        moveDirection(pos, 1, -1, board, moveList, test);
-    }
-
-    private void knightMoves(ChessBoard board, ChessPosition pos, Collection<ChessMove> moveList, boolean test) {
-        int row = pos.getRow();
-        int col = pos.getColumn();
-        ChessPosition end;
-        // Up Right
-        if (row + 2 <= 8 && col + 1 <= 8) {
-            end = new ChessPosition(row + 2, col + 1);
-            addMoveIfOccupied(board, pos, end, moveList, test);
-        }
-        // Right Up
-        if (row + 1 <= 8 && col + 2 <= 8) {
-            end = new ChessPosition(row + 1, col + 2);
-            addMoveIfOccupied(board, pos, end, moveList, test);
-        }
-        // Right Down
-        if (row - 1 >= 1 && col + 2 <= 8) {
-            end = new ChessPosition(row - 1, col + 2);
-            addMoveIfOccupied(board, pos, end, moveList, test);
-        }
-        // Down Right
-        if (row - 2 >= 1 && col + 1 <= 8) {
-            end = new ChessPosition(row - 2, col + 1);
-            addMoveIfOccupied(board, pos, end, moveList, test);
-        }
-        // Down Left
-        if (row - 2 >= 1 && col - 1 >= 1) {
-            end = new ChessPosition(row - 2, col - 1);
-            addMoveIfOccupied(board, pos, end, moveList, test);
-        }
-        // Left Down
-        if (row - 1 >= 1 && col - 2 >= 1) {
-            end = new ChessPosition(row - 1, col - 2);
-            addMoveIfOccupied(board, pos, end, moveList, test);
-        }
-        // Left Up
-        if (row + 1 <= 8 && col - 2 >= 1) {
-            end = new ChessPosition(row + 1, col - 2);
-            addMoveIfOccupied(board, pos, end, moveList, test);
-        }
-        // Up Left
-        if (row + 2 <= 8 && col - 1 >= 1) {
-            end = new ChessPosition(row + 2, col - 1);
-            addMoveIfOccupied(board, pos, end, moveList, test);
-        }
-    }
-
-    private void rookMoves(ChessBoard board, ChessPosition pos, Collection<ChessMove> moveList, boolean test) {
-        // Up
-        moveDirection(pos, 1, 0, board, moveList, test);
-        // Right
-        moveDirection(pos, 0, 1, board, moveList, test);
-        // Down
-        moveDirection(pos, -1, 0, board, moveList, test);
-        // Left
-        moveDirection(pos, 0, -1, board, moveList, test);
-    }
-
-    private void pawnMoves(ChessBoard board, ChessPosition pos, Collection<ChessMove> moveList, boolean test) {
-        if (pieceColor == ChessGame.TeamColor.WHITE) {
-            movePawn(pos, board, moveList, 1, test);
-        }
-        else {
-            movePawn(pos, board, moveList, -1, test);
-        }
-    }
-
-    private void movePawn(ChessPosition pos, ChessBoard board, Collection<ChessMove> list, int direction, boolean test) {
-        int row = pos.getRow();
-        int col = pos.getColumn();
-        ChessPosition oneSpace;
-        ChessPosition diagonal1;
-        ChessPosition diagonal2;
-        boolean promotion;
-        if (direction == 1) {
-             promotion = row + 1 == 8;
-        }
-        else {
-            promotion = row - 1 == 1;
-        }
-        if (row + direction <= 8) {
-            oneSpace = new ChessPosition(row + direction, col);
-            if ((row == 2 && direction == 1) || (row == 7 && direction == -1) && !occupied(board, oneSpace)) {
-                var twoSpaces = new ChessPosition(row + (2 * direction), col);
-                if (!occupied(board, twoSpaces)) {
-                    list.add(new ChessMove(pos, twoSpaces, null));
-                }
-                list.add(new ChessMove(pos, oneSpace, null));
-            } else {
-                if (!occupied(board, oneSpace)) {
-                    if (promotion) {
-                        pawnPromotion(pos, oneSpace, list);
-                    } else {
-                        list.add(new ChessMove(pos, oneSpace, null));
-                    }
-                }
-            }
-            if (col + 1 <= 8) {
-                diagonal1 = new ChessPosition(row + direction, col + 1);
-                if (occupied(board, diagonal1) && enemy) {
-                    if (promotion) {
-                        pawnPromotion(pos, diagonal1, list);
-                    } else {
-                        list.add(new ChessMove(pos, diagonal1, null));
-                    }
-                } else if (occupied(board, diagonal1) && test) {
-                    list.add(new ChessMove(pos, diagonal1, null));
-                }
-            }
-            if (col - 1 >= 1) {
-                diagonal2 = new ChessPosition(row + direction, col - 1);
-                if (occupied(board, diagonal2) && enemy) {
-                    if (promotion) {
-                        pawnPromotion(pos, diagonal2, list);
-                    } else {
-                        list.add(new ChessMove(pos, diagonal2, null));
-                    }
-                } else if (occupied(board, diagonal2) && test) {
-                    list.add(new ChessMove(pos, diagonal2, null));
-                }
-            }
-        }
-    }
-
-    private void moveDirection(ChessPosition pos, int rowChange, int colChange, ChessBoard board, Collection<ChessMove> list, boolean test) {
-        var row = pos.getRow();
-        var col = pos.getColumn();
-        for (int i = 1; i < 8; i++) {
-            if (row + (i * rowChange) > 8 || col + (i * colChange) > 8 || row + (i * rowChange) < 1 || col + (i * colChange) < 1) {
-                break;
-            }
-            var end = new ChessPosition(row + (i * rowChange), col + (i * colChange));
-            if (occupied(board, end) && !enemy) {
-                if (test) {
-                    list.add(new ChessMove(pos, end, null));
-                }
-                break;
-            }
-            list.add(new ChessMove(pos, end, null));
-            if (occupied(board, end)) {
-                break;
-            }
-        }
-    }
-
-    private boolean occupied(ChessBoard board, ChessPosition pos) {
-        if (board.getPiece(pos) != null) {
-            enemy = board.getPiece(pos).pieceColor != getTeamColor();
-            return true;
-        }
-        return false;
-    }
-
-    private void addMoveIfOccupied(ChessBoard board, ChessPosition pos, ChessPosition end, Collection<ChessMove> list, boolean test) {
-        if (occupied(board, end)) {
-            if (enemy) {
-                list.add(new ChessMove(pos, end, null));
-            }
-            else if (test) {
-                list.add(new ChessMove(pos, end, null));
-            }
-        }
-        else {
-            list.add(new ChessMove(pos, end, null));
-        }
-    }
-
-    private void pawnPromotion(ChessPosition start, ChessPosition end, Collection<ChessMove> moveList) {
-        moveList.add(new ChessMove(start, end, PieceType.QUEEN));
-        moveList.add(new ChessMove(start, end, PieceType.BISHOP));
-        moveList.add(new ChessMove(start, end, PieceType.KNIGHT));
-        moveList.add(new ChessMove(start, end, PieceType.ROOK));
+    /**
+     * Calculates the same moves as {@link #pieceMoves(ChessBoard, ChessPosition)}
+     * but writes them into a caller-supplied buffer as packed ints (see
+     * {@link PackedMove}) instead of allocating a collection of objects
+     *
+     * @param moves buffer to write into, with room for at least
+     *              BitBoard.MAX_PIECE_MOVES moves past the offset
+     * @param offset index of the first free slot in the buffer
+     * @return the index after the last move written
+     */
+    public int pieceMoves(ChessBoard board, ChessPosition myPosition, int[] moves, int offset) {
+        return board.bits().generateMoves(type.ordinal(), pieceColor.ordinal(), BitBoard.square(myPosition),
+                moves, offset);
     }
 
+    /**
+     * Calculates every square this piece covers, including squares held by its
+     * own team. Pawns cover only their diagonals.
+     *
+     * @return Collection of moves onto each covered square
+     */
     public Collection<ChessMove> coveredSquares(ChessBoard board, ChessPosition myPosition) {
+        int from = BitBoard.square(myPosition);
+        long covered = BitBoard.attacks(type.ordinal(), pieceColor.ordinal(), from, board.bits().occupancy());
         Collection<ChessMove> moveList = new HashSet<>();
-        if (getPieceType() == PieceType.KING) {
-            kingMoves(board, myPosition, moveList, true);
-        }
-        if (getPieceType() == PieceType.QUEEN) {
-            queenMoves(board, myPosition, moveList, true);
-        }
-        if (getPieceType() == PieceType.BISHOP) {
-            bishopMoves(board, myPosition, moveList, true);
-        }
-        if (getPieceType() == PieceType.KNIGHT) {
-            knightMoves(board, myPosition, moveList, true);
-        }
-        if (getPieceType() == PieceType.ROOK) {
-            rookMoves(board, myPosition, moveList, true);
-        }
-        if (getPieceType() == PieceType.PAWN) {
-            pawnMoves(board, myPosition, moveList, true);
+        while (covered != 0) {
+            int to = Long.numberOfTrailingZeros(covered);
+            covered &= covered - 1;
+            moveList.add(PackedMove.toChessMove(PackedMove.of(from, to, BitBoard.EMPTY, 0)));
         }
         return moveList;
     }
@@ -391,6 +162,6 @@ public class ChessPiece {
 
     @Override
     public int hashCode() {
-        return Objects.hash(pieceColor, type);
+        return 31 * Objects.hashCode(pieceColor) + Objects.hashCode(type);
     }
 }
\ No newline at end of file
@@ -1,7 +1,5 @@
 package chess;
 
-import java.util.Objects;
-
 /**
  * Represents a single square position on a chess board
  * <p>
@@ -13,11 +11,32 @@ public class ChessPosition {
     private final int row;
     private final int col;
 
+    private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+    static {
+        for (int i = 0; i < 64; i++) {
+            POSITIONS[i] = new ChessPosition(i / 8 + 1, i % 8 + 1);
+        }
+    }
+
     public ChessPosition(int row, int col) {
         this.row = row;
         this.col = col;
     }
 
+    /**
+     * Gets the shared instance for a square, so rule evaluation does not
+     * allocate a new position for every square it looks at
+     *
+     * @return the canonical position, or a new one if the square is off the board
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return new ChessPosition(row, col);
+        }
+        return POSITIONS[(row - 1) * 8 + col - 1];
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -78,6 +97,6 @@ public class ChessPosition {
 
     @Override
     public int hashCode() {
-        return Objects.hash(row, col);
+        return 31 * row + col;
     }
 }
@@ -0,0 +1,102 @@
+package chess;
+
+/**
+ * Packs a chess game into a small fixed-size byte array, as a compact
+ * alternative to storing it as JSON
+ * <p>
+ * Layout: byte 0 is the format version. Bytes 1-32 hold one nibble per
+ * square in {@link BitBoard} square order, low nibble first, where 0 is an
+ * empty square and anything else is the BitBoard piece index plus one. In
+ * byte 33, bit 0 is set when black is to move and bits 1-3 hold the game
+ * status. Bytes 34-35 hold the ply, big-endian. This engine has no castling
+ * or en passant, so there are no flags for them.
+ * <p>
+ * Format 1 is the same without the ply, which reads back as zero.
+ */
+public final class GameCodec {
+
+    public static final byte FORMAT = 2;
+    public static final int LENGTH = 36;
+
+    private static final int FORMAT_1_LENGTH = 34;
+    private static final int FLAGS = 33;
+    private static final int PLY = 34;
+    private static final ChessGame.GameStatus[] STATUSES = ChessGame.GameStatus.values();
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private GameCodec() {
+    }
+
+    /**
+     * @param game the game to encode
+     * @return the game in {@link #LENGTH} bytes
+     */
+    public static byte[] encode(ChessGame game) {
+        var bytes = new byte[LENGTH];
+        bytes[0] = FORMAT;
+        BitBoard bits = game.getBoard().bits();
+        for (int sq = 0; sq < 64; sq++) {
+            int nibble = bits.get(sq) + 1;
+            bytes[1 + sq / 2] |= (byte) ((sq % 2 == 0) ? nibble : nibble << 4);
+        }
+        int blackToMove = (game.getTeamTurn() == ChessGame.TeamColor.BLACK) ? 1 : 0;
+        bytes[FLAGS] = (byte) (blackToMove | game.getGameStatus().ordinal() << 1);
+        bytes[PLY] = (byte) (game.getPly() >>> 8);
+        bytes[PLY + 1] = (byte) game.getPly();
+        return bytes;
+    }
+
+    /**
+     * @param bytes a game written by {@link #encode(ChessGame)}
+     * @return a new game in the encoded position
+     * @throws IllegalArgumentException if the bytes are not an encoded game
+     */
+    public static ChessGame decode(byte[] bytes) {
+        boolean format1 = bytes != null && bytes.length == FORMAT_1_LENGTH && bytes[0] == 1;
+        if (!format1 && (bytes == null || bytes.length != LENGTH || bytes[0] != FORMAT)) {
+            throw new IllegalArgumentException("Not an encoded chess game");
+        }
+        var game = new ChessGame();
+        ChessBoard board = game.getBoard();
+        for (int sq = 0; sq < 64; sq++) {
+            int packed = bytes[1 + sq / 2];
+            int nibble = ((sq % 2 == 0) ? packed : packed >>> 4) & 0xF;
+            if (nibble > 12) {
+                throw new IllegalArgumentException("Bad piece " + nibble + " on square " + sq);
+            }
+            ChessPiece piece = null;
+            if (nibble != 0) {
+                int index = nibble - 1;
+                piece = ChessPiece.of(COLORS[BitBoard.colorOf(index)], TYPES[BitBoard.typeOf(index)]);
+            }
+            board.addPiece(ChessPosition.of(sq / 8 + 1, sq % 8 + 1), piece);
+        }
+        int flags = bytes[FLAGS];
+        int status = (flags >>> 1) & 0x7;
+        if (status >= STATUSES.length) {
+            throw new IllegalArgumentException("Bad game status " + status);
+        }
+        game.setTeamTurn((flags & 1) == 1 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        game.setGameStatus(STATUSES[status]);
+        if (!format1) {
+            game.setPly((bytes[PLY] & 0xFF) << 8 | (bytes[PLY + 1] & 0xFF));
+        }
+        return game;
+    }
+
+    /**
+     * Hashes the encoded game, so two sides can check they hold the same
+     * position, turn, status and ply without sending the whole game
+     *
+     * @return a 64-bit FNV-1a hash of {@link #encode(ChessGame)}
+     */
+    public static long hash(ChessGame game) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : encode(game)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
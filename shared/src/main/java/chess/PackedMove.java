@@ -0,0 +1,73 @@
+package chess;
+
+/**
+ * Helpers for moves packed into a single int, as written by the buffer form
+ * of {@link ChessPiece#pieceMoves(ChessBoard, ChessPosition, int[], int)}
+ * <p>
+ * Layout: bits 0-5 hold the start square, bits 6-11 the end square (both
+ * {@link BitBoard} square indexes), bits 12-14 the promotion piece type plus
+ * one (zero for no promotion) and bit 15 is set when the move captures.
+ */
+public final class PackedMove {
+
+    public static final int CAPTURE = 1 << 15;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int MOVE_MASK = CAPTURE - 1;
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {
+    }
+
+    /**
+     * @param from start square index
+     * @param to end square index
+     * @param promotion BitBoard piece type to promote to, or BitBoard.EMPTY
+     * @param flags CAPTURE or 0
+     * @return the packed move
+     */
+    public static int of(int from, int to, int promotion, int flags) {
+        return from | (to << 6) | ((promotion + 1) << 12) | flags;
+    }
+
+    public static int of(ChessMove move) {
+        var promotion = move.getPromotionPiece();
+        return of(BitBoard.square(move.getStartPosition()), BitBoard.square(move.getEndPosition()),
+                promotion == null ? BitBoard.EMPTY : promotion.ordinal(), 0);
+    }
+
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & SQUARE_MASK;
+    }
+
+    /**
+     * @return the BitBoard piece type to promote to, or BitBoard.EMPTY
+     */
+    public static int promotion(int move) {
+        return ((move >>> 12) & 0x7) - 1;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    /**
+     * @return the move with its flags cleared, for comparing moves by squares
+     * and promotion only
+     */
+    public static int withoutFlags(int move) {
+        return move & MOVE_MASK;
+    }
+
+    public static ChessMove toChessMove(int move) {
+        int from = from(move);
+        int to = to(move);
+        int promotion = promotion(move);
+        return new ChessMove(ChessPosition.of(from / 8 + 1, from % 8 + 1), ChessPosition.of(to / 8 + 1, to % 8 + 1),
+                promotion == BitBoard.EMPTY ? null : TYPES[promotion]);
+    }
+}
@@ -0,0 +1,118 @@
+package chess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the leaf nodes of the legal move tree ("perft") of a chess game,
+ * for checking the rules engine against published counts and for measuring
+ * its speed
+ * <p>
+ * Positions can be loaded from FEN. This engine has no castling or en
+ * passant, so those FEN fields are read past and ignored.
+ */
+public class Perft {
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the positions reachable in exactly depth moves from the game's
+     * current position. The game is left as it was found.
+     *
+     * @param game the game to search from
+     * @param depth number of moves to play out
+     * @return the number of leaf nodes
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth < 1) {
+            return 1;
+        }
+        return perft(game.getBoard().bits(), game.getTeamTurn().ordinal(), depth,
+                new int[depth + 1][BitBoard.MAX_MOVES]);
+    }
+
+    /**
+     * Same as {@link #perft(ChessGame, int)} but split by the first move,
+     * which narrows down where a count goes wrong
+     *
+     * @return the leaf count under each legal first move, in generation order
+     */
+    public static Map<String, Long> divide(ChessGame game, int depth) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        BitBoard bits = game.getBoard().bits();
+        int color = game.getTeamTurn().ordinal();
+        int[][] buffers = new int[Math.max(depth, 1) + 1][BitBoard.MAX_MOVES];
+        int[] moves = buffers[0];
+        int count = bits.filterLegal(color, moves, 0, bits.generateMoves(color, moves, 0));
+        for (int i = 0; i < count; i++) {
+            bits.make(moves[i]);
+            long nodes = (depth <= 1) ? 1 : perft(bits, color ^ 1, depth - 1, buffers);
+            bits.unmake();
+            counts.put(PackedMove.toChessMove(moves[i]).toString(), nodes);
+        }
+        return counts;
+    }
+
+    private static long perft(BitBoard bits, int color, int depth, int[][] buffers) {
+        int[] moves = buffers[depth];
+        int count = bits.filterLegal(color, moves, 0, bits.generateMoves(color, moves, 0));
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            bits.make(moves[i]);
+            nodes += perft(bits, color ^ 1, depth - 1, buffers);
+            bits.unmake();
+        }
+        return nodes;
+    }
+
+    /**
+     * Builds a game from the piece placement and side-to-move fields of a FEN
+     * string
+     *
+     * @param fen the position in Forsyth-Edwards Notation
+     * @return a new game set up in that position
+     * @throws IllegalArgumentException if the placement is malformed
+     */
+    public static ChessGame fromFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        String[] ranks = fields[0].split("/");
+        if (ranks.length != 8) {
+            throw new IllegalArgumentException("Expected 8 ranks in FEN: " + fen);
+        }
+        var board = new ChessBoard();
+        for (int i = 0; i < 8; i++) {
+            int row = 8 - i;
+            int col = 1;
+            for (char c : ranks[i].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    col += c - '0';
+                    continue;
+                }
+                var color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                var type = switch (Character.toLowerCase(c)) {
+                    case 'k' -> ChessPiece.PieceType.KING;
+                    case 'q' -> ChessPiece.PieceType.QUEEN;
+                    case 'b' -> ChessPiece.PieceType.BISHOP;
+                    case 'n' -> ChessPiece.PieceType.KNIGHT;
+                    case 'r' -> ChessPiece.PieceType.ROOK;
+                    case 'p' -> ChessPiece.PieceType.PAWN;
+                    default -> throw new IllegalArgumentException("Unknown piece '" + c + "' in FEN: " + fen);
+                };
+                if (col > 8) {
+                    throw new IllegalArgumentException("Rank " + row + " is too long in FEN: " + fen);
+                }
+                board.addPiece(ChessPosition.of(row, col), ChessPiece.of(color, type));
+                col++;
+            }
+        }
+        var game = new ChessGame();
+        game.setBoard(board);
+        boolean blackToMove = fields.length > 1 && fields[1].equals("b");
+        game.setTeamTurn(blackToMove ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        return game;
+    }
+}
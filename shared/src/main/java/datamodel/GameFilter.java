@@ -0,0 +1,13 @@
+package datamodel;
+
+/**
+ * Which games a game listing includes. Every filter that is set must match.
+ *
+ * @param openSeats only games that have not ended and have an empty seat
+ * @param mine only games the user listing them is playing in
+ * @param inProgress only games that have not ended and have both seats taken
+ */
+public record GameFilter(boolean openSeats, boolean mine, boolean inProgress) {
+
+    public static final GameFilter ALL = new GameFilter(false, false, false);
+}
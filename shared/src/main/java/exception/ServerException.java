@@ -1,6 +1,6 @@
 package exception;
 
-import com.google.gson.Gson;
+import utilities.Serializer;
 
 import java.util.Map;
 
@@ -15,6 +15,6 @@ public class ServerException extends Exception {
     }
 
     public String toJson() {
-        return new Gson().toJson(Map.of("message", getMessage()));
+        return Serializer.GSON.toJson(Map.of("message", getMessage()));
     }
 }
@@ -0,0 +1,237 @@
+package utilities;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.GameCodec;
+import chess.PackedMove;
+import websocket.commands.ConnectCommand;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.*;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary websocket subprotocol. A client that offers {@link #SUBPROTOCOL}
+ * when it connects sends commands and receives server messages as binary
+ * frames in this format; everyone else uses JSON text frames.
+ * <p>
+ * Every frame starts with the command or message type's ordinal, followed by
+ * a byte of flags saying which optional fields are present. Then, in order
+ * and only if present:
+ * <ul>
+ * <li>commands: the game ID (4 bytes), the auth token (2-byte length then
+ * UTF-8) and the move (2 bytes, a {@link PackedMove} without flags); flag 8
+ * is a CONNECT's moveUpdates</li>
+ * <li>LOAD_GAME: the game as {@link GameCodec} bytes</li>
+ * <li>NOTIFICATION and ERROR: the text (4-byte length then UTF-8)</li>
+ * <li>MOVE: the move (2 bytes), the status ordinal (1 byte) and the state
+ * hash (8 bytes)</li>
+ * </ul>
+ * All numbers are big-endian.
+ */
+public final class BinaryProtocol {
+
+    public static final String SUBPROTOCOL = "chess-binary-v1";
+
+    private static final int HAS_GAME_ID = 1;
+    private static final int HAS_AUTH_TOKEN = 2;
+    private static final int HAS_MOVE = 4;
+    private static final int MOVE_UPDATES = 8;
+    private static final int HAS_GAME = 1;
+    private static final int HAS_TEXT = 1;
+    private static final int HAS_STATUS = 2;
+
+    private static final UserGameCommand.CommandType[] COMMAND_TYPES = UserGameCommand.CommandType.values();
+    private static final ServerMessage.ServerMessageType[] MESSAGE_TYPES = ServerMessage.ServerMessageType.values();
+    private static final ChessGame.GameStatus[] STATUSES = ChessGame.GameStatus.values();
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the command has no type, or its move
+     *                                  is not on the board
+     */
+    public static byte[] encode(UserGameCommand command) {
+        if (command.getCommandType() == null) {
+            throw new IllegalArgumentException("Command has no type");
+        }
+        byte[] token = (command.getAuthToken() == null) ? null
+                : command.getAuthToken().getBytes(StandardCharsets.UTF_8);
+        ChessMove move = (command instanceof MakeMoveCommand makeMove) ? makeMove.move : null;
+        int flags = (command.getGameID() != null ? HAS_GAME_ID : 0)
+                | (token != null ? HAS_AUTH_TOKEN : 0)
+                | (move != null ? HAS_MOVE : 0)
+                | (command instanceof ConnectCommand connect && connect.moveUpdates ? MOVE_UPDATES : 0);
+        var out = ByteBuffer.allocate(2 + 4 + (token == null ? 0 : 2 + token.length) + 2);
+        out.put((byte) command.getCommandType().ordinal());
+        out.put((byte) flags);
+        if (command.getGameID() != null) {
+            out.putInt(command.getGameID());
+        }
+        if (token != null) {
+            if (token.length > 0xFFFF) {
+                throw new IllegalArgumentException("Auth token is too long");
+            }
+            out.putShort((short) token.length);
+            out.put(token);
+        }
+        if (move != null) {
+            out.putShort((short) packMove(move));
+        }
+        return trimmed(out);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not an encoded command
+     */
+    public static UserGameCommand decodeCommand(ByteBuffer in) {
+        try {
+            var type = COMMAND_TYPES[index(in.get(), COMMAND_TYPES.length)];
+            int flags = in.get();
+            Integer gameID = ((flags & HAS_GAME_ID) != 0) ? in.getInt() : null;
+            String authToken = null;
+            if ((flags & HAS_AUTH_TOKEN) != 0) {
+                var token = new byte[in.getShort() & 0xFFFF];
+                in.get(token);
+                authToken = new String(token, StandardCharsets.UTF_8);
+            }
+            ChessMove move = ((flags & HAS_MOVE) != 0) ? unpackMove(in.getShort()) : null;
+            return switch (type) {
+                case MAKE_MOVE -> new MakeMoveCommand(authToken, gameID, move);
+                case CONNECT -> new ConnectCommand(authToken, gameID, (flags & MOVE_UPDATES) != 0);
+                default -> new UserGameCommand(type, authToken, gameID);
+            };
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Command is cut short", ex);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the message has no type, or its move
+     *                                  is not on the board
+     */
+    public static byte[] encode(ServerMessage message) {
+        if (message.getServerMessageType() == null) {
+            throw new IllegalArgumentException("Message has no type");
+        }
+        byte type = (byte) message.getServerMessageType().ordinal();
+        return switch (message) {
+            case LoadGameMessage load -> {
+                var out = ByteBuffer.allocate(2 + GameCodec.LENGTH).put(type);
+                if (load.game == null) {
+                    yield trimmed(out.put((byte) 0));
+                }
+                yield trimmed(out.put((byte) HAS_GAME).put(GameCodec.encode(load.game)));
+            }
+            case NotificationMessage note -> text(type, note.message);
+            case ErrorMessage error -> text(type, error.errorMessage);
+            case MoveMessage update -> {
+                int flags = (update.move != null ? HAS_MOVE : 0) | (update.status != null ? HAS_STATUS : 0);
+                var out = ByteBuffer.allocate(2 + 2 + 1 + 8).put(type).put((byte) flags);
+                if (update.move != null) {
+                    out.putShort((short) packMove(update.move));
+                }
+                if (update.status != null) {
+                    out.put((byte) update.status.ordinal());
+                }
+                yield trimmed(out.putLong(update.stateHash));
+            }
+            default -> new byte[]{type, 0};
+        };
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not an encoded message
+     */
+    public static ServerMessage decodeMessage(ByteBuffer in) {
+        try {
+            var type = MESSAGE_TYPES[index(in.get(), MESSAGE_TYPES.length)];
+            int flags = in.get();
+            return switch (type) {
+                case LOAD_GAME -> {
+                    ChessGame game = null;
+                    if ((flags & HAS_GAME) != 0) {
+                        var state = new byte[GameCodec.LENGTH];
+                        in.get(state);
+                        game = GameCodec.decode(state);
+                    }
+                    yield new LoadGameMessage(game);
+                }
+                case NOTIFICATION -> new NotificationMessage(readText(in, flags));
+                case ERROR -> new ErrorMessage(readText(in, flags));
+                case MOVE -> {
+                    ChessMove move = ((flags & HAS_MOVE) != 0) ? unpackMove(in.getShort()) : null;
+                    ChessGame.GameStatus status = null;
+                    if ((flags & HAS_STATUS) != 0) {
+                        status = STATUSES[index(in.get(), STATUSES.length)];
+                    }
+                    yield new MoveMessage(move, status, in.getLong());
+                }
+            };
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Message is cut short", ex);
+        }
+    }
+
+    private static byte[] text(byte type, String text) {
+        if (text == null) {
+            return new byte[]{type, 0};
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(2 + 4 + bytes.length).put(type).put((byte) HAS_TEXT)
+                .putInt(bytes.length).put(bytes).array();
+    }
+
+    private static String readText(ByteBuffer in, int flags) {
+        if ((flags & HAS_TEXT) == 0) {
+            return null;
+        }
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Bad text length " + length);
+        }
+        var bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int packMove(ChessMove move) {
+        if (!onBoard(move.getStartPosition()) || !onBoard(move.getEndPosition())) {
+            throw new IllegalArgumentException("Move is not on the board: " + move);
+        }
+        return PackedMove.of(move);
+    }
+
+    private static ChessMove unpackMove(short packed) {
+        int move = packed & 0xFFFF;
+        if (PackedMove.promotion(move) >= ChessPiece.PieceType.values().length) {
+            throw new IllegalArgumentException("Bad promotion piece in move " + move);
+        }
+        return PackedMove.toChessMove(move);
+    }
+
+    private static boolean onBoard(ChessPosition position) {
+        return position != null && position.getRow() >= 1 && position.getRow() <= 8
+                && position.getColumn() >= 1 && position.getColumn() <= 8;
+    }
+
+    private static int index(byte value, int count) {
+        int index = value & 0xFF;
+        if (index >= count) {
+            throw new IllegalArgumentException("Bad type " + index);
+        }
+        return index;
+    }
+
+    private static byte[] trimmed(ByteBuffer out) {
+        var bytes = new byte[out.position()];
+        out.flip().get(bytes);
+        return bytes;
+    }
+}
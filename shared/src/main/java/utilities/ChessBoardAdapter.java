@@ -0,0 +1,120 @@
+package utilities;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes and reads a ChessBoard as the same JSON Gson makes by reflection:
+ * {@code {"board":[[{"pieceColor":"WHITE","type":"ROOK"},null,...],...]}},
+ * eight rows of eight squares with row 1 first
+ */
+class ChessBoardAdapter extends TypeAdapter<ChessBoard> {
+
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    @Override
+    public void write(JsonWriter out, ChessBoard board) throws IOException {
+        if (board == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("board");
+        out.beginArray();
+        for (int row = 1; row <= 8; row++) {
+            out.beginArray();
+            for (int col = 1; col <= 8; col++) {
+                writePiece(out, board.getPiece(ChessPosition.of(row, col)));
+            }
+            out.endArray();
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    @Override
+    public ChessBoard read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        var board = new ChessBoard();
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals("board") && in.peek() == JsonToken.BEGIN_ARRAY) {
+                readSquares(in, board);
+            }
+            else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return board;
+    }
+
+    private static void readSquares(JsonReader in, ChessBoard board) throws IOException {
+        in.beginArray();
+        for (int row = 1; in.hasNext(); row++) {
+            if (row > 8 || in.peek() != JsonToken.BEGIN_ARRAY) {
+                in.skipValue();
+                continue;
+            }
+            in.beginArray();
+            for (int col = 1; in.hasNext(); col++) {
+                if (col > 8) {
+                    in.skipValue();
+                    continue;
+                }
+                var piece = readPiece(in);
+                if (piece != null) {
+                    board.addPiece(ChessPosition.of(row, col), piece);
+                }
+            }
+            in.endArray();
+        }
+        in.endArray();
+    }
+
+    private static void writePiece(JsonWriter out, ChessPiece piece) throws IOException {
+        if (piece == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("pieceColor").value(Serializer.name(piece.getTeamColor()));
+        out.name("type").value(Serializer.name(piece.getPieceType()));
+        out.endObject();
+    }
+
+    private static ChessPiece readPiece(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        ChessGame.TeamColor color = null;
+        ChessPiece.PieceType type = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "pieceColor" -> color = Serializer.readEnum(in, COLORS);
+                case "type" -> type = Serializer.readEnum(in, TYPES);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (color == null || type == null) {
+            throw new JsonParseException("Piece needs a known pieceColor and type at " + in.getPath());
+        }
+        return ChessPiece.of(color, type);
+    }
+}
@@ -0,0 +1,88 @@
+package utilities;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes and reads a ChessGame as the same JSON Gson makes by reflection:
+ * {@code {"gameBoard":{...},"teamTurn":"WHITE","status":"PLAYING","ply":0}}.
+ * Fields missing from the JSON keep the values a new game starts with.
+ */
+class ChessGameAdapter extends TypeAdapter<ChessGame> {
+
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessGame.GameStatus[] STATUSES = ChessGame.GameStatus.values();
+    // GameCodec keeps the ply in two bytes
+    private static final int MAX_PLY = 0xFFFF;
+
+    private final ChessBoardAdapter boards;
+
+    ChessGameAdapter(ChessBoardAdapter boards) {
+        this.boards = boards;
+    }
+
+    @Override
+    public void write(JsonWriter out, ChessGame game) throws IOException {
+        if (game == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("gameBoard");
+        boards.write(out, game.getBoard());
+        out.name("teamTurn").value(Serializer.name(game.getTeamTurn()));
+        out.name("status").value(Serializer.name(game.getGameStatus()));
+        out.name("ply").value(game.getPly());
+        out.endObject();
+    }
+
+    @Override
+    public ChessGame read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        var game = new ChessGame();
+        ChessBoard board = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "gameBoard" -> board = boards.read(in);
+                case "teamTurn" -> game.setTeamTurn(Serializer.readRequiredEnum(in, COLORS));
+                case "status" -> game.setGameStatus(Serializer.readRequiredEnum(in, STATUSES));
+                case "ply" -> game.setPly(readPly(in));
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (board != null) {
+            game.setBoard(board);
+        }
+        return game;
+    }
+
+    /**
+     * @throws JsonParseException if the ply is not a whole number that
+     *                            {@link chess.GameCodec} can hold
+     */
+    private static int readPly(JsonReader in) throws IOException {
+        var path = in.getPath();
+        int ply;
+        try {
+            ply = in.nextInt();
+        } catch (IllegalStateException | NumberFormatException ex) {
+            throw new JsonParseException("Expected a whole number ply at " + path, ex);
+        }
+        if (ply < 0 || ply > MAX_PLY) {
+            throw new JsonParseException("Ply " + ply + " is out of range at " + path);
+        }
+        return ply;
+    }
+}
@@ -0,0 +1,87 @@
+package utilities;
+
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes and reads a ChessMove as the same JSON Gson makes by reflection:
+ * {@code {"startPosition":{"row":2,"col":5},"endPosition":{...},"promotionPiece":"QUEEN"}}
+ */
+class ChessMoveAdapter extends TypeAdapter<ChessMove> {
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    @Override
+    public void write(JsonWriter out, ChessMove move) throws IOException {
+        if (move == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("startPosition");
+        writePosition(out, move.getStartPosition());
+        out.name("endPosition");
+        writePosition(out, move.getEndPosition());
+        out.name("promotionPiece").value(Serializer.name(move.getPromotionPiece()));
+        out.endObject();
+    }
+
+    @Override
+    public ChessMove read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        ChessPosition start = null;
+        ChessPosition end = null;
+        ChessPiece.PieceType promotion = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "startPosition" -> start = readPosition(in);
+                case "endPosition" -> end = readPosition(in);
+                case "promotionPiece" -> promotion = Serializer.readEnum(in, TYPES);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return new ChessMove(start, end, promotion);
+    }
+
+    private static void writePosition(JsonWriter out, ChessPosition position) throws IOException {
+        if (position == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("row").value(position.getRow());
+        out.name("col").value(position.getColumn());
+        out.endObject();
+    }
+
+    private static ChessPosition readPosition(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        int row = 0;
+        int col = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "row" -> row = in.nextInt();
+                case "col" -> col = in.nextInt();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return ChessPosition.of(row, col);
+    }
+}
@@ -0,0 +1,97 @@
+package utilities;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ServerMessage;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The Gson instance everything shares. Gson is thread safe, so there is no
+ * need to build a new one for each message.
+ * <p>
+ * Games, boards, moves, websocket commands and server messages are written
+ * and read by hand-written streaming adapters instead of reflection. They
+ * produce the same JSON reflection does, so either side can still use a
+ * plain Gson. Commands and server messages come back as the right subclass,
+ * so {@code fromJson(json, ServerMessage.class)} returns a LoadGameMessage
+ * for a LOAD_GAME.
+ */
+public final class Serializer {
+
+    public static final Gson GSON;
+
+    static {
+        var moves = new ChessMoveAdapter();
+        var boards = new ChessBoardAdapter();
+        var games = new ChessGameAdapter(boards);
+        GSON = new GsonBuilder()
+                .registerTypeAdapter(ChessMove.class, moves)
+                .registerTypeAdapter(ChessBoard.class, boards)
+                .registerTypeAdapter(ChessGame.class, games)
+                .registerTypeHierarchyAdapter(UserGameCommand.class, new UserGameCommandAdapter(moves))
+                .registerTypeHierarchyAdapter(ServerMessage.class, new ServerMessageAdapter(games, moves))
+                .create();
+    }
+
+    private Serializer() {
+    }
+
+    static String name(Enum<?> value) {
+        return (value == null) ? null : value.name();
+    }
+
+    /**
+     * Reads an enum by name. Like Gson's own enum handling, a name that is not
+     * one of the values reads as null.
+     */
+    static <E extends Enum<E>> E readEnum(JsonReader in, E[] values) throws IOException {
+        var name = readString(in);
+        if (name != null) {
+            for (E value : values) {
+                if (value.name().equals(name)) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads an enum by name where a value is required
+     *
+     * @throws JsonParseException if the value is null or not one of the names
+     */
+    static <E extends Enum<E>> E readRequiredEnum(JsonReader in, E[] values) throws IOException {
+        var path = in.getPath();
+        var value = readEnum(in, values);
+        if (value == null) {
+            throw new JsonParseException("Expected one of " + Arrays.toString(values) + " at " + path);
+        }
+        return value;
+    }
+
+    static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    static Integer readInteger(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextInt();
+    }
+}
@@ -0,0 +1,95 @@
+package utilities;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import websocket.messages.*;
+
+import java.io.IOException;
+
+/**
+ * Writes and reads every kind of ServerMessage. Reading picks the right
+ * subclass from {@code serverMessageType} in the same pass that reads the
+ * other fields, wherever in the object the type appears.
+ */
+class ServerMessageAdapter extends TypeAdapter<ServerMessage> {
+
+    private static final ServerMessage.ServerMessageType[] TYPES = ServerMessage.ServerMessageType.values();
+    private static final ChessGame.GameStatus[] STATUSES = ChessGame.GameStatus.values();
+
+    private final ChessGameAdapter games;
+    private final ChessMoveAdapter moves;
+
+    ServerMessageAdapter(ChessGameAdapter games, ChessMoveAdapter moves) {
+        this.games = games;
+        this.moves = moves;
+    }
+
+    @Override
+    public void write(JsonWriter out, ServerMessage message) throws IOException {
+        if (message == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("serverMessageType").value(Serializer.name(message.getServerMessageType()));
+        switch (message) {
+            case LoadGameMessage load -> {
+                out.name("game");
+                games.write(out, load.game);
+            }
+            case NotificationMessage note -> out.name("message").value(note.message);
+            case ErrorMessage error -> out.name("errorMessage").value(error.errorMessage);
+            case MoveMessage update -> {
+                out.name("move");
+                moves.write(out, update.move);
+                out.name("status").value(Serializer.name(update.status));
+                out.name("stateHash").value(update.stateHash);
+            }
+            default -> {
+            }
+        }
+        out.endObject();
+    }
+
+    @Override
+    public ServerMessage read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        ServerMessage.ServerMessageType type = null;
+        ChessGame game = null;
+        String message = null;
+        String errorMessage = null;
+        ChessMove move = null;
+        ChessGame.GameStatus status = null;
+        long stateHash = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "serverMessageType" -> type = Serializer.readEnum(in, TYPES);
+                case "game" -> game = games.read(in);
+                case "message" -> message = Serializer.readString(in);
+                case "errorMessage" -> errorMessage = Serializer.readString(in);
+                case "move" -> move = moves.read(in);
+                case "status" -> status = Serializer.readEnum(in, STATUSES);
+                case "stateHash" -> stateHash = in.nextLong();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (type == null) {
+            return new ServerMessage(null);
+        }
+        return switch (type) {
+            case LOAD_GAME -> new LoadGameMessage(game);
+            case NOTIFICATION -> new NotificationMessage(message);
+            case ERROR -> new ErrorMessage(errorMessage);
+            case MOVE -> new MoveMessage(move, status, stateHash);
+        };
+    }
+}
@@ -0,0 +1,80 @@
+package utilities;
+
+import chess.ChessMove;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import websocket.commands.ConnectCommand;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+
+import java.io.IOException;
+
+/**
+ * Writes and reads every kind of UserGameCommand. Reading picks the right
+ * subclass from {@code commandType} in the same pass that reads the other
+ * fields, wherever in the object the type appears.
+ */
+class UserGameCommandAdapter extends TypeAdapter<UserGameCommand> {
+
+    private static final UserGameCommand.CommandType[] TYPES = UserGameCommand.CommandType.values();
+
+    private final ChessMoveAdapter moves;
+
+    UserGameCommandAdapter(ChessMoveAdapter moves) {
+        this.moves = moves;
+    }
+
+    @Override
+    public void write(JsonWriter out, UserGameCommand command) throws IOException {
+        if (command == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("commandType").value(Serializer.name(command.getCommandType()));
+        out.name("authToken").value(command.getAuthToken());
+        out.name("gameID").value(command.getGameID());
+        if (command instanceof MakeMoveCommand makeMove) {
+            out.name("move");
+            moves.write(out, makeMove.move);
+        }
+        else if (command instanceof ConnectCommand connect) {
+            out.name("moveUpdates").value(connect.moveUpdates);
+        }
+        out.endObject();
+    }
+
+    @Override
+    public UserGameCommand read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        UserGameCommand.CommandType type = null;
+        String authToken = null;
+        Integer gameID = null;
+        ChessMove move = null;
+        boolean moveUpdates = false;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "commandType" -> type = Serializer.readEnum(in, TYPES);
+                case "authToken" -> authToken = Serializer.readString(in);
+                case "gameID" -> gameID = Serializer.readInteger(in);
+                case "move" -> move = moves.read(in);
+                case "moveUpdates" -> moveUpdates = in.nextBoolean();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (type == UserGameCommand.CommandType.MAKE_MOVE) {
+            return new MakeMoveCommand(authToken, gameID, move);
+        }
+        if (type == UserGameCommand.CommandType.CONNECT) {
+            return new ConnectCommand(authToken, gameID, moveUpdates);
+        }
+        return new UserGameCommand(type, authToken, gameID);
+    }
+}
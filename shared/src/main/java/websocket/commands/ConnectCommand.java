@@ -0,0 +1,14 @@
+package websocket.commands;
+
+public class ConnectCommand extends UserGameCommand {
+    /**
+     * Whether the client wants MOVE messages after each move instead of the
+     * whole game
+     */
+    public boolean moveUpdates;
+
+    public ConnectCommand(String authToken, Integer gameID, boolean moveUpdates) {
+        super(CommandType.CONNECT, authToken, gameID);
+        this.moveUpdates = moveUpdates;
+    }
+}
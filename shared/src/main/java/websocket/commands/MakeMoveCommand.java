@@ -5,7 +5,7 @@ import chess.ChessMove;
 public class MakeMoveCommand extends UserGameCommand {
     public ChessMove move;
 
-    public MakeMoveCommand(String authToken, int gameID, ChessMove move) {
+    public MakeMoveCommand(String authToken, Integer gameID, ChessMove move) {
         super(CommandType.MAKE_MOVE, authToken, gameID);
         this.move = move;
     }
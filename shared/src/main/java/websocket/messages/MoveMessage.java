@@ -0,0 +1,34 @@
+package websocket.messages;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.GameCodec;
+
+/**
+ * Tells a client which move was just made, instead of sending the whole game.
+ * The client makes the move on its own copy and compares the result with
+ * {@code stateHash}; if they differ it asks for the game again.
+ */
+public class MoveMessage extends ServerMessage {
+    public ChessMove move;
+    public ChessGame.GameStatus status;
+    public long stateHash;
+
+    /**
+     * @param move the move that was made
+     * @param game the game after the move
+     */
+    public MoveMessage(ChessMove move, ChessGame game) {
+        super(ServerMessageType.MOVE);
+        this.move = move;
+        this.status = game.getGameStatus();
+        this.stateHash = GameCodec.hash(game);
+    }
+
+    public MoveMessage(ChessMove move, ChessGame.GameStatus status, long stateHash) {
+        super(ServerMessageType.MOVE);
+        this.move = move;
+        this.status = status;
+        this.stateHash = stateHash;
+    }
+}
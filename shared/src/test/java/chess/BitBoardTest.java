@@ -0,0 +1,120 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitBoardTest {
+
+    private static final String PROMOTIONS = "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1";
+    private static final String MIDDLEGAME = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w - - 0 1";
+
+    /**
+     * Plays random legal moves from the position and takes them all back,
+     * running the check on the board after every make and unmake
+     */
+    private static void randomWalks(ChessGame start, long seed, Consumer<BitBoard> check) {
+        var random = new SplittableRandom(seed);
+        var moves = new int[BitBoard.MAX_MOVES];
+        for (int walk = 0; walk < 50; walk++) {
+            var bits = new BitBoard(start.getBoard().bits());
+            int color = start.getTeamTurn().ordinal();
+            int played = 0;
+            for (int depth = 0; depth < 40; depth++) {
+                int count = bits.filterLegal(color, moves, 0, bits.generateMoves(color, moves, 0));
+                if (count == 0) {
+                    break;
+                }
+                bits.make(moves[random.nextInt(count)]);
+                played++;
+                color ^= 1;
+                check.accept(bits);
+            }
+            for (; played > 0; played--) {
+                bits.unmake();
+                check.accept(bits);
+            }
+        }
+    }
+
+    private static void assertAttacksMatchScratch(BitBoard bits) {
+        long occupied = bits.occupancy();
+        long[] maps = new long[2];
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = bits.get(sq);
+            long expected = (piece == BitBoard.EMPTY) ? 0
+                    : BitBoard.attacks(BitBoard.typeOf(piece), BitBoard.colorOf(piece), sq, occupied);
+            assertEquals(expected, bits.attacksFrom(sq), "attacks from square " + sq);
+            if (piece != BitBoard.EMPTY) {
+                maps[BitBoard.colorOf(piece)] |= expected;
+            }
+        }
+        assertEquals(maps[BitBoard.WHITE], bits.attackMap(BitBoard.WHITE));
+        assertEquals(maps[BitBoard.BLACK], bits.attackMap(BitBoard.BLACK));
+    }
+
+    /**
+     * Builds the key again from an empty board, one piece at a time
+     */
+    private static void assertKeyMatchesScratch(BitBoard bits) {
+        var scratch = new BitBoard();
+        for (int sq = 0; sq < 64; sq++) {
+            if (bits.get(sq) != BitBoard.EMPTY) {
+                scratch.set(sq, bits.get(sq));
+            }
+        }
+        assertEquals(scratch.key(), bits.key());
+    }
+
+    @Test
+    void keyMatchesScratchAfterRandomMoves() {
+        randomWalks(new ChessGame(), 5, BitBoardTest::assertKeyMatchesScratch);
+        randomWalks(Perft.fromFen(PROMOTIONS), 6, BitBoardTest::assertKeyMatchesScratch);
+        randomWalks(Perft.fromFen(MIDDLEGAME), 7, BitBoardTest::assertKeyMatchesScratch);
+    }
+
+    @Test
+    void keyMatchesScratchAfterCaptureAndPromotion() {
+        var bits = Perft.fromFen(PROMOTIONS).getBoard().bits();
+        long before = bits.key();
+        int capturePromotion = PackedMove.of(new ChessMove(ChessPosition.of(2, 7), ChessPosition.of(1, 8),
+                ChessPiece.PieceType.QUEEN));
+        assertEquals(BitBoard.pieceIndex(BitBoard.WHITE, BitBoard.KNIGHT), bits.get(BitBoard.square(1, 8)));
+        bits.make(capturePromotion);
+        assertEquals(BitBoard.pieceIndex(BitBoard.BLACK, BitBoard.QUEEN), bits.get(BitBoard.square(1, 8)));
+        assertKeyMatchesScratch(bits);
+        bits.unmake();
+        assertEquals(before, bits.key());
+        assertKeyMatchesScratch(bits);
+    }
+
+    @Test
+    void attackMapsMatchScratchAfterRandomMoves() {
+        randomWalks(new ChessGame(), 1, BitBoardTest::assertAttacksMatchScratch);
+        randomWalks(Perft.fromFen(PROMOTIONS), 2, BitBoardTest::assertAttacksMatchScratch);
+        randomWalks(Perft.fromFen(MIDDLEGAME), 3, BitBoardTest::assertAttacksMatchScratch);
+    }
+
+    @Test
+    void attackMapsAndKeyMatchScratchAfterAddAndRemove() {
+        var random = new SplittableRandom(4);
+        var pieces = ChessPiece.PieceType.values();
+        var board = new ChessBoard();
+        board.resetBoard();
+        for (int i = 0; i < 500; i++) {
+            var pos = ChessPosition.of(random.nextInt(1, 9), random.nextInt(1, 9));
+            if (random.nextInt(3) == 0) {
+                board.removePiece(pos);
+            }
+            else {
+                var color = random.nextBoolean() ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                board.addPiece(pos, ChessPiece.of(color, pieces[random.nextInt(pieces.length)]));
+            }
+            assertAttacksMatchScratch(board.bits());
+            assertKeyMatchesScratch(board.bits());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChessGameTest {
+
+    /**
+     * White king on a1 with no moves and not in check; black can move freely
+     */
+    private static ChessBoard whiteStalemated() {
+        var board = new ChessBoard();
+        board.addPiece(ChessPosition.of(1, 1), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(ChessPosition.of(3, 2), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        board.addPiece(ChessPosition.of(3, 3), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        return board;
+    }
+
+    @Test
+    void statusIsReevaluatedAfterMakeMove() throws InvalidMoveException {
+        var game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 6), ChessPosition.of(3, 6), null));
+        game.makeMove(new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null));
+        game.makeMove(new ChessMove(ChessPosition.of(2, 7), ChessPosition.of(4, 7), null));
+        assertEquals(ChessGame.GameStatus.PLAYING, game.evaluateStatus());
+        game.makeMove(new ChessMove(ChessPosition.of(8, 4), ChessPosition.of(4, 8), null));
+        assertEquals(ChessGame.GameStatus.CHECKMATE, game.evaluateStatus());
+    }
+
+    @Test
+    void statusIsReevaluatedAfterSetBoard() {
+        var game = new ChessGame();
+        assertEquals(ChessGame.GameStatus.PLAYING, game.evaluateStatus());
+        game.setBoard(whiteStalemated());
+        assertEquals(ChessGame.GameStatus.STALEMATE, game.evaluateStatus());
+        var start = new ChessBoard();
+        start.resetBoard();
+        game.setBoard(start);
+        assertEquals(ChessGame.GameStatus.PLAYING, game.evaluateStatus());
+    }
+
+    @Test
+    void statusIsReevaluatedAfterSetTeamTurn() {
+        var game = new ChessGame();
+        game.setBoard(whiteStalemated());
+        assertEquals(ChessGame.GameStatus.STALEMATE, game.evaluateStatus());
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertEquals(ChessGame.GameStatus.PLAYING, game.evaluateStatus());
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        assertEquals(ChessGame.GameStatus.STALEMATE, game.evaluateStatus());
+    }
+
+    @Test
+    void sideToMoveIsPartOfTheKey() {
+        var white = new ChessGame();
+        white.setBoard(whiteStalemated());
+        var black = new ChessGame();
+        black.setBoard(whiteStalemated());
+        black.setTeamTurn(ChessGame.TeamColor.BLACK);
+
+        assertEquals(white.getBoard().getZobristKey(), black.getBoard().getZobristKey());
+        assertNotEquals(white.getZobristKey(), black.getZobristKey());
+        assertEquals(ChessGame.GameStatus.PLAYING, black.evaluateStatus());
+        assertEquals(ChessGame.GameStatus.STALEMATE, white.evaluateStatus());
+    }
+}
@@ -0,0 +1,103 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameCodecTest {
+
+    @Test
+    void roundTripsNewGame() {
+        var game = new ChessGame();
+        var decoded = GameCodec.decode(GameCodec.encode(game));
+        assertEquals(game, decoded);
+        assertEquals(game.getZobristKey(), decoded.getZobristKey());
+    }
+
+    @Test
+    void roundTripsTurnAndStatus() throws InvalidMoveException {
+        var game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 6), ChessPosition.of(3, 6), null));
+        game.makeMove(new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null));
+        game.makeMove(new ChessMove(ChessPosition.of(2, 7), ChessPosition.of(4, 7), null));
+        game.makeMove(new ChessMove(ChessPosition.of(8, 4), ChessPosition.of(4, 8), null));
+        assertEquals(ChessGame.GameStatus.CHECKMATE, game.evaluateStatus());
+
+        var decoded = GameCodec.decode(GameCodec.encode(game));
+        assertEquals(game, decoded);
+        assertEquals(ChessGame.TeamColor.WHITE, decoded.getTeamTurn());
+        assertEquals(ChessGame.GameStatus.CHECKMATE, decoded.getGameStatus());
+        assertEquals(4, decoded.getPly());
+    }
+
+    @Test
+    void roundTripsLongGamePly() {
+        var game = new ChessGame();
+        game.setPly(700);
+        assertEquals(700, GameCodec.decode(GameCodec.encode(game)).getPly());
+    }
+
+    @Test
+    void readsFormat1() {
+        var game = new ChessGame();
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        game.setPly(9);
+        var format1 = Arrays.copyOf(GameCodec.encode(game), 34);
+        format1[0] = 1;
+        var decoded = GameCodec.decode(format1);
+        assertEquals(game, decoded);
+        assertEquals(0, decoded.getPly());
+    }
+
+    @Test
+    void roundTripsPromotedPieces() {
+        var game = Perft.fromFen("n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1");
+        game.setGameStatus(ChessGame.GameStatus.RESIGNED);
+        var decoded = GameCodec.decode(GameCodec.encode(game));
+        assertEquals(game, decoded);
+        assertEquals(ChessGame.TeamColor.BLACK, decoded.getTeamTurn());
+        assertEquals(ChessGame.GameStatus.RESIGNED, decoded.getGameStatus());
+    }
+
+    @Test
+    void muchSmallerThanJson() {
+        var game = new ChessGame();
+        assertEquals(GameCodec.LENGTH, GameCodec.encode(game).length);
+        assertTrue(new Gson().toJson(game).length() > 10 * GameCodec.LENGTH);
+    }
+
+    @Test
+    void rejectsBadBytes() {
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(null));
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(new byte[3]));
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.decode("{\"gameBoard\":{}}".getBytes()));
+
+        var badPiece = GameCodec.encode(new ChessGame());
+        badPiece[20] = (byte) 0xFF;
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(badPiece));
+    }
+
+    @Test
+    void hashMatchesForSameState() throws InvalidMoveException {
+        var move = new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null);
+        var first = new ChessGame();
+        var second = new ChessGame();
+        first.makeMove(move);
+        second.makeMove(move);
+        assertEquals(GameCodec.hash(first), GameCodec.hash(second));
+    }
+
+    @Test
+    void hashChangesWithState() {
+        var game = new ChessGame();
+        long start = GameCodec.hash(game);
+        game.setGameStatus(ChessGame.GameStatus.RESIGNED);
+        assertNotEquals(start, GameCodec.hash(game));
+        game.setGameStatus(ChessGame.GameStatus.PLAYING);
+        game.setPly(1);
+        assertNotEquals(start, GameCodec.hash(game));
+    }
+}
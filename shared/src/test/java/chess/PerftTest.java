@@ -0,0 +1,60 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reference counts are from the Chess Programming Wiki perft results, limited
+ * to positions and depths where castling and en passant never come up.
+ */
+class PerftTest {
+
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+    private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final String PROMOTIONS = "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1";
+
+    @ParameterizedTest
+    @CsvSource({"1, 20", "2, 400", "3, 8902", "4, 197281"})
+    void startPosition(int depth, long nodes) {
+        assertEquals(nodes, Perft.perft(new ChessGame(), depth));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1, 14", "2, 191"})
+    void position3(int depth, long nodes) {
+        assertEquals(nodes, Perft.perft(Perft.fromFen(POSITION_3), depth));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1, 24", "2, 496", "3, 9483", "4, 182838"})
+    void promotions(int depth, long nodes) {
+        assertEquals(nodes, Perft.perft(Perft.fromFen(PROMOTIONS), depth));
+    }
+
+    @Test
+    void fenStartMatchesNewGame() {
+        assertEquals(new ChessGame(), Perft.fromFen(START));
+    }
+
+    @Test
+    void divideSumsToPerft() {
+        var game = new ChessGame();
+        var split = Perft.divide(game, 3);
+        assertEquals(20, split.size());
+        assertEquals(8902, split.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void perftLeavesGameUnchanged() {
+        var game = Perft.fromFen(PROMOTIONS);
+        var key = game.getZobristKey();
+        var copy = new ChessBoard(game.getBoard());
+        Perft.perft(game, 3);
+        assertEquals(key, game.getZobristKey());
+        assertEquals(copy, game.getBoard());
+        assertEquals(24, Perft.perft(game, 1));
+    }
+}
@@ -0,0 +1,85 @@
+package utilities;
+
+import chess.*;
+import org.junit.jupiter.api.Test;
+import websocket.commands.ConnectCommand;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryProtocolTest {
+
+    private static final ChessMove PROMOTION = new ChessMove(ChessPosition.of(7, 1), ChessPosition.of(8, 1),
+            ChessPiece.PieceType.QUEEN);
+
+    private static UserGameCommand roundTrip(UserGameCommand command) {
+        return BinaryProtocol.decodeCommand(ByteBuffer.wrap(BinaryProtocol.encode(command)));
+    }
+
+    private static ServerMessage roundTrip(ServerMessage message) {
+        return BinaryProtocol.decodeMessage(ByteBuffer.wrap(BinaryProtocol.encode(message)));
+    }
+
+    @Test
+    void commandsRoundTrip() {
+        var makeMove = assertInstanceOf(MakeMoveCommand.class, roundTrip(new MakeMoveCommand("tøken", 3, PROMOTION)));
+        assertEquals(PROMOTION, makeMove.move);
+        assertEquals("tøken", makeMove.getAuthToken());
+        assertEquals(3, makeMove.getGameID());
+
+        assertTrue(assertInstanceOf(ConnectCommand.class, roundTrip(new ConnectCommand("t", 1, true))).moveUpdates);
+        assertFalse(assertInstanceOf(ConnectCommand.class, roundTrip(new ConnectCommand("t", 1, false))).moveUpdates);
+
+        var leave = roundTrip(new UserGameCommand(UserGameCommand.CommandType.LEAVE, null, null));
+        assertEquals(UserGameCommand.CommandType.LEAVE, leave.getCommandType());
+        assertNull(leave.getAuthToken());
+        assertNull(leave.getGameID());
+    }
+
+    @Test
+    void messagesRoundTrip() throws Exception {
+        var game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        var load = assertInstanceOf(LoadGameMessage.class, roundTrip(new LoadGameMessage(game)));
+        assertEquals(game, load.game);
+        assertEquals(GameCodec.hash(game), GameCodec.hash(load.game));
+
+        assertEquals("hi ♞", assertInstanceOf(NotificationMessage.class,
+                roundTrip(new NotificationMessage("hi ♞"))).message);
+        assertEquals("bad", assertInstanceOf(ErrorMessage.class, roundTrip(new ErrorMessage("bad"))).errorMessage);
+        assertNull(assertInstanceOf(ErrorMessage.class, roundTrip(new ErrorMessage(null))).errorMessage);
+
+        var sent = new MoveMessage(PROMOTION, game);
+        var update = assertInstanceOf(MoveMessage.class, roundTrip(sent));
+        assertEquals(PROMOTION, update.move);
+        assertEquals(sent.status, update.status);
+        assertEquals(sent.stateHash, update.stateHash);
+    }
+
+    @Test
+    void framesAreSmallerThanJson() throws Exception {
+        var game = new ChessGame();
+        assertTrue(BinaryProtocol.encode(new LoadGameMessage(game)).length * 10
+                < Serializer.GSON.toJson(new LoadGameMessage(game)).length());
+        assertTrue(BinaryProtocol.encode(new MakeMoveCommand("token", 3, PROMOTION)).length
+                < Serializer.GSON.toJson(new MakeMoveCommand("token", 3, PROMOTION)).length());
+    }
+
+    @Test
+    void malformedFramesAreRejected() {
+        var encoded = BinaryProtocol.encode(new MakeMoveCommand("token", 3, PROMOTION));
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryProtocol.decodeCommand(ByteBuffer.wrap(Arrays.copyOf(encoded, encoded.length - 1))));
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryProtocol.decodeCommand(ByteBuffer.wrap(new byte[]{(byte) 99, 0})));
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryProtocol.decodeMessage(ByteBuffer.wrap(new byte[]{2, 1, 0x7F, 0, 0, 0})));
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.encode(
+                new MakeMoveCommand("t", 1, new ChessMove(new ChessPosition(0, 1), new ChessPosition(1, 1), null))));
+    }
+}
@@ -0,0 +1,135 @@
+package utilities;
+
+import chess.*;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import websocket.commands.ConnectCommand;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerializerTest {
+
+    private static final Gson REFLECTION = new Gson();
+    private static final ChessMove PROMOTION = new ChessMove(ChessPosition.of(7, 1), ChessPosition.of(8, 1),
+            ChessPiece.PieceType.QUEEN);
+
+    private static ChessGame middlegame() throws InvalidMoveException {
+        var game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        game.makeMove(new ChessMove(ChessPosition.of(7, 4), ChessPosition.of(5, 4), null));
+        game.setGameStatus(ChessGame.GameStatus.CHECK);
+        return game;
+    }
+
+    private static void assertSameJson(Object value) {
+        assertEquals(JsonParser.parseString(REFLECTION.toJson(value)),
+                JsonParser.parseString(Serializer.GSON.toJson(value)));
+    }
+
+    @Test
+    void writesSameJsonAsReflection() throws Exception {
+        assertSameJson(middlegame());
+        assertSameJson(middlegame().getBoard());
+        assertSameJson(PROMOTION);
+        assertSameJson(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        assertSameJson(new MakeMoveCommand("token", 3, PROMOTION));
+        assertSameJson(new ConnectCommand("token", 3, true));
+        assertSameJson(new UserGameCommand(UserGameCommand.CommandType.LEAVE, "token", null));
+        assertSameJson(new LoadGameMessage(middlegame()));
+        assertSameJson(new NotificationMessage("hi"));
+        assertSameJson(new ErrorMessage("Error: bad"));
+        assertSameJson(new MoveMessage(PROMOTION, middlegame()));
+    }
+
+    @Test
+    void readsReflectionJson() throws Exception {
+        var game = middlegame();
+        var read = Serializer.GSON.fromJson(REFLECTION.toJson(game), ChessGame.class);
+        assertEquals(game, read);
+        assertEquals(game.getPly(), read.getPly());
+        assertEquals(game.getGameStatus(), read.getGameStatus());
+        assertEquals(GameCodec.hash(game), GameCodec.hash(read));
+        assertEquals(PROMOTION, Serializer.GSON.fromJson(REFLECTION.toJson(PROMOTION), ChessMove.class));
+    }
+
+    @Test
+    void readGameKeepsDefaultsForMissingFields() {
+        var read = Serializer.GSON.fromJson("{\"teamTurn\":\"BLACK\"}", ChessGame.class);
+        assertEquals(new ChessGame().getBoard(), read.getBoard());
+        assertEquals(ChessGame.TeamColor.BLACK, read.getTeamTurn());
+        assertEquals(ChessGame.GameStatus.PLAYING, read.getGameStatus());
+    }
+
+    @Test
+    void readsCommandSubclassWhereverTypeAppears() {
+        var json = "{\"authToken\":\"token\",\"gameID\":3,\"move\":" + REFLECTION.toJson(PROMOTION)
+                + ",\"commandType\":\"MAKE_MOVE\"}";
+        var command = Serializer.GSON.fromJson(json, UserGameCommand.class);
+        var makeMove = assertInstanceOf(MakeMoveCommand.class, command);
+        assertEquals(PROMOTION, makeMove.move);
+        assertEquals(3, makeMove.getGameID());
+        assertEquals("token", makeMove.getAuthToken());
+
+        var connect = Serializer.GSON.fromJson("{\"commandType\":\"CONNECT\",\"authToken\":\"t\",\"gameID\":1}",
+                UserGameCommand.class);
+        assertFalse(assertInstanceOf(ConnectCommand.class, connect).moveUpdates);
+
+        var leave = Serializer.GSON.fromJson("{\"commandType\":\"LEAVE\",\"authToken\":\"t\"}", UserGameCommand.class);
+        assertEquals(UserGameCommand.CommandType.LEAVE, leave.getCommandType());
+        assertNull(leave.getGameID());
+    }
+
+    @Test
+    void readsMessageSubclassFromReflectionJson() throws Exception {
+        var game = middlegame();
+        var load = Serializer.GSON.fromJson(REFLECTION.toJson(new LoadGameMessage(game)), ServerMessage.class);
+        assertEquals(game, assertInstanceOf(LoadGameMessage.class, load).game);
+
+        var note = Serializer.GSON.fromJson(REFLECTION.toJson(new NotificationMessage("hi")), ServerMessage.class);
+        assertEquals("hi", assertInstanceOf(NotificationMessage.class, note).message);
+
+        var error = Serializer.GSON.fromJson(REFLECTION.toJson(new ErrorMessage("bad")), ServerMessage.class);
+        assertEquals("bad", assertInstanceOf(ErrorMessage.class, error).errorMessage);
+
+        var sent = new MoveMessage(PROMOTION, game);
+        var update = assertInstanceOf(MoveMessage.class,
+                Serializer.GSON.fromJson(REFLECTION.toJson(sent), ServerMessage.class));
+        assertEquals(PROMOTION, update.move);
+        assertEquals(ChessGame.GameStatus.CHECK, update.status);
+        assertEquals(sent.stateHash, update.stateHash);
+    }
+
+    @Test
+    void unknownEnumNameReadsAsNull() {
+        var command = Serializer.GSON.fromJson("{\"commandType\":\"DANCE\"}", UserGameCommand.class);
+        assertNull(command.getCommandType());
+    }
+
+    @Test
+    void pieceWithoutColorOrTypeFailsToParse() {
+        var missingType = "{\"board\":[[{\"pieceColor\":\"WHITE\"}]]}";
+        assertThrows(JsonParseException.class, () -> Serializer.GSON.fromJson(missingType, ChessBoard.class));
+        var unknownColor = "{\"gameBoard\":{\"board\":[[{\"pieceColor\":\"RED\",\"type\":\"ROOK\"}]]}}";
+        assertThrows(JsonParseException.class, () -> Serializer.GSON.fromJson(unknownColor, ChessGame.class));
+    }
+
+    @Test
+    void gameWithBadTurnStatusOrPlyFailsToParse() {
+        for (var json : new String[]{
+                "{\"teamTurn\":\"GREEN\"}",
+                "{\"teamTurn\":null}",
+                "{\"status\":\"PAUSED\"}",
+                "{\"status\":null}",
+                "{\"ply\":\"many\"}",
+                "{\"ply\":true}",
+                "{\"ply\":-1}",
+                "{\"ply\":70000}"}) {
+            assertThrows(JsonParseException.class, () -> Serializer.GSON.fromJson(json, ChessGame.class), json);
+        }
+    }
+}